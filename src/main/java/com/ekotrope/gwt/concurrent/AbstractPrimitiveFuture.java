@@ -0,0 +1,456 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.ekotrope.gwt.concurrent;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.impl.Contexts;
+import java.util.concurrent.impl.DeferredExecutor;
+import java.util.concurrent.impl.Dispatcher;
+import java.util.concurrent.impl.Failures;
+import java.util.concurrent.impl.Timers;
+import java.util.concurrent.impl.Unobserved;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+import static javaemul.internal.InternalPreconditions.checkNotNull;
+
+/**
+ * Completion state, dependents and stage plumbing shared by {@link IntCompletableFuture},
+ * {@link LongCompletableFuture} and {@link DoubleCompletableFuture}. Subclasses hold the result
+ * in a primitive field and declare the typed stages, which hand the functions of their value to
+ * the {@code *Stage} methods here; only the failure is stored here.
+ * <p>
+ * Dependents behave as those of {@link CompletableFuture}: registered before completion, they
+ * are run by the dispatcher once the future completes, each isolated from the others; registered
+ * afterwards, they run immediately (or on the given executor). They run in the
+ * {@link AsyncContext} they were registered in, and a failure nobody consumed is reported after
+ * the turn.
+ */
+abstract class AbstractPrimitiveFuture {
+
+  static final Executor ASYNC_EXECUTOR = new DeferredExecutor();
+
+  /**
+   * The {@link #dependents} of a completed future whose result has been consumed.
+   */
+  private static final Object OBSERVED = new Object();
+
+  private Throwable reason;
+  private boolean done;
+  /**
+   * {@code null}, a single {@link Runnable}, a list of them, or {@link #OBSERVED}.
+   */
+  private Object dependents;
+  private Timers.Timeout timeout;
+  private CompletableFuture<?> boxed;
+
+  public boolean isDone() {
+    return done;
+  }
+
+  public boolean isCompletedExceptionally() {
+    return reason != null;
+  }
+
+  public boolean isCancelled() {
+    return reason instanceof CancellationException;
+  }
+
+  public boolean cancel(boolean mayInterruptIfRunning) {
+    return tryCompleteThrowable(Failures.cancellation(), false);
+  }
+
+  public boolean completeExceptionally(Throwable e) {
+    checkNotNull(e);
+    return tryCompleteThrowable(e, false);
+  }
+
+  public int getNumberOfDependents() {
+    if (done || dependents == null) {
+      return 0;
+    }
+    return dependents instanceof List ? ((List<?>) dependents).size() : 1;
+  }
+
+  /**
+   * Fails this future with a {@link TimeoutException} unless it completes within the given time,
+   * see {@link CompletableFuture#orTimeout(long, TimeUnit)}.
+   */
+  final void expireAfter(long timeout, TimeUnit unit) {
+    if (done) {
+      return;
+    }
+    if (this.timeout != null) {
+      this.timeout.cancel();
+    }
+    this.timeout = Timers.schedule(
+        () -> tryCompleteThrowable(new TimeoutException(), false), unit.toMillis(timeout));
+  }
+
+  /**
+   * Marks the future done; the subclass must have stored its value beforehand.
+   */
+  final void completeValue() {
+    done = true;
+    runDependents();
+  }
+
+  final boolean tryCompleteThrowable(Throwable e, boolean wrap) {
+    if (done) {
+      return false;
+    }
+    reason = wrap ? wrap(e) : e;
+    done = true;
+    runDependents();
+    return true;
+  }
+
+  final Throwable reason() {
+    return reason;
+  }
+
+  /**
+   * Throws the failure the way {@link CompletableFuture#join()} does, consuming the result.
+   */
+  final void throwIfFailed() {
+    observe();
+    if (reason == null) {
+      return;
+    }
+    if (reason instanceof CancellationException) {
+      throw (CancellationException) reason;
+    }
+    throw wrap(reason);
+  }
+
+  /**
+   * Throws the failure the way {@link CompletableFuture#get()} does, consuming the result.
+   */
+  final void checkGet() throws InterruptedException, ExecutionException {
+    if (!done) {
+      throw new InterruptedException("blocking on " + getClass().getName() + " is not supported");
+    }
+    observe();
+    if (reason == null) {
+      return;
+    }
+    if (reason instanceof CancellationException) {
+      throw (CancellationException) reason;
+    }
+    Throwable cause = reason instanceof CompletionException ? reason.getCause() : null;
+    throw new ExecutionException(cause != null ? cause : reason);
+  }
+
+  /**
+   * Runs {@code action} once this future completes, in the current context.
+   *
+   * @param executor the executor to run {@code action} on, {@code null} to run it synchronously
+   */
+  final void onComplete(Runnable action, Executor executor) {
+    Runnable task = Contexts.wrap(action);
+    Runnable dependent = executor == null ? task : () -> executor.execute(task);
+    if (done) {
+      observe();
+      dependent.run();
+    } else {
+      addDependent(dependent);
+    }
+  }
+
+  /**
+   * Runs {@code action}, which completes {@code target}, once this future succeeds. If this
+   * future fails, or {@code action} throws, {@code target} fails in turn.
+   */
+  final void onSuccess(AbstractPrimitiveFuture target, Runnable action, Executor executor) {
+    onComplete(() -> {
+      if (reason != null) {
+        target.tryCompleteThrowable(reason, true);
+        return;
+      }
+      try {
+        action.run();
+      } catch (Throwable t) {
+        target.tryCompleteThrowable(t, true);
+      }
+    }, executor);
+  }
+
+  /**
+   * Same as {@link #onSuccess(AbstractPrimitiveFuture, Runnable, Executor)} for a generic target.
+   */
+  private void onSuccess(CompletableFuture<?> target, Runnable action, Executor executor) {
+    onComplete(() -> {
+      if (reason != null) {
+        target.completeExceptionally(wrap(reason));
+        return;
+      }
+      try {
+        action.run();
+      } catch (Throwable t) {
+        target.completeExceptionally(wrap(t));
+      }
+    }, executor);
+  }
+
+  /**
+   * Completes {@code target} with the failure of this future, if any.
+   *
+   * @return {@code true} if this future failed
+   */
+  final boolean propagateFailure(AbstractPrimitiveFuture target) {
+    if (reason == null) {
+      return false;
+    }
+    target.tryCompleteThrowable(reason, true);
+    return true;
+  }
+
+  private boolean propagateFailure(CompletableFuture<?> target) {
+    if (reason == null) {
+      return false;
+    }
+    target.completeExceptionally(wrap(reason));
+    return true;
+  }
+
+  /**
+   * Runs {@code supply}, which completes {@code future}, on {@code executor}, in the current
+   * context; {@code future} fails if it throws.
+   */
+  static void supply(AbstractPrimitiveFuture future, Runnable supply, Executor executor) {
+    checkNotNull(executor);
+    executor.execute(Contexts.wrap(() -> {
+      try {
+        supply.run();
+      } catch (Throwable t) {
+        future.tryCompleteThrowable(t, true);
+      }
+    }));
+  }
+
+  /**
+   * Completes {@code future} once {@code stage} does: {@code complete} receives its value, a
+   * {@code null} value fails {@code future} with a {@link NullPointerException}.
+   */
+  static void adopt(CompletionStage<? extends Number> stage, AbstractPrimitiveFuture future,
+      Consumer<Number> complete) {
+    Futures.onSettled(stage, (value, e) -> {
+      if (e != null) {
+        future.tryCompleteThrowable(e, true);
+      } else if (value == null) {
+        future.tryCompleteThrowable(new NullPointerException(), true);
+      } else {
+        complete.accept(value);
+      }
+    });
+  }
+
+  /**
+   * Returns a generic future completed with the result of {@code fn} (a function of this
+   * future's value) once this future succeeds.
+   */
+  final <U> CompletableFuture<U> applyStage(Supplier<? extends U> fn, Executor executor) {
+    CompletableFuture<U> future = new CompletableFuture<>();
+    onSuccess(future, () -> future.complete(fn.get()), executor);
+    return future;
+  }
+
+  /**
+   * Returns a generic future completed as the stage returned by {@code fn} (a function of this
+   * future's value) once this future succeeds.
+   */
+  final <U> CompletableFuture<U> composeStage(Supplier<? extends CompletionStage<U>> fn,
+      Executor executor) {
+    CompletableFuture<U> future = new CompletableFuture<>();
+    onSuccess(future, () -> Futures.onSettled(fn.get(), (r, e) -> {
+      if (e != null) {
+        future.completeExceptionally(wrap(e));
+      } else {
+        future.complete(r);
+      }
+    }), executor);
+    return future;
+  }
+
+  /**
+   * Returns a generic future completed with the result of {@code fn}, given the failure of this
+   * future or {@code null}, once this future completes.
+   */
+  final <U> CompletableFuture<U> handleStage(Function<Throwable, ? extends U> fn,
+      Executor executor) {
+    CompletableFuture<U> future = new CompletableFuture<>();
+    onComplete(() -> {
+      try {
+        future.complete(fn.apply(reason));
+      } catch (Throwable t) {
+        future.completeExceptionally(wrap(t));
+      }
+    }, executor);
+    return future;
+  }
+
+  /**
+   * Runs {@code action} once this future completes, then completes {@code target} with the
+   * failure of this future, else the failure of {@code action}, else by running
+   * {@code copyValue}.
+   */
+  final void whenCompleteStage(AbstractPrimitiveFuture target, Runnable action,
+      Runnable copyValue, Executor executor) {
+    onComplete(() -> {
+      try {
+        action.run();
+      } catch (Throwable t) {
+        if (!propagateFailure(target)) {
+          target.tryCompleteThrowable(t, true);
+        }
+        return;
+      }
+      if (!propagateFailure(target)) {
+        copyValue.run();
+      }
+    }, executor);
+  }
+
+  /**
+   * Completes {@code target} by running {@code copyValue} if this future succeeds, or
+   * {@code recover} if it fails; {@code target} fails if {@code recover} throws.
+   */
+  final void exceptionallyStage(AbstractPrimitiveFuture target, Runnable copyValue,
+      Runnable recover) {
+    onComplete(() -> {
+      if (reason == null) {
+        copyValue.run();
+        return;
+      }
+      try {
+        recover.run();
+      } catch (Throwable t) {
+        target.tryCompleteThrowable(t, true);
+      }
+    }, null);
+  }
+
+  /**
+   * Runs {@code combine}, which completes {@code target}, once this future and {@code other} have
+   * both succeeded; {@code target} fails with the first failure otherwise.
+   */
+  final void combineStage(AbstractPrimitiveFuture other, AbstractPrimitiveFuture target,
+      Runnable combine, Executor executor) {
+    // registered on both so that either failure is consumed; runs once both have completed
+    Runnable action = () -> {
+      if (target.isDone() || !isDone() || !other.isDone()
+          || propagateFailure(target) || other.propagateFailure(target)) {
+        return;
+      }
+      try {
+        combine.run();
+      } catch (Throwable t) {
+        target.tryCompleteThrowable(t, true);
+      }
+    };
+    onComplete(action, executor);
+    other.onComplete(action, executor);
+  }
+
+  /**
+   * Returns the generic view of this future, completed with {@code value} (the boxed value of
+   * this future) once it succeeds. The view is created once and shared by all callers.
+   */
+  @SuppressWarnings("unchecked")
+  final <B> CompletableFuture<B> boxedStage(Supplier<B> value) {
+    if (boxed == null) {
+      CompletableFuture<B> future = new CompletableFuture<>();
+      onComplete(() -> {
+        if (!propagateFailure(future)) {
+          future.complete(value.get());
+        }
+      }, null);
+      boxed = future;
+    }
+    return (CompletableFuture<B>) boxed;
+  }
+
+  private void observe() {
+    if (done && dependents == null) {
+      dependents = OBSERVED;
+    }
+  }
+
+  @SuppressWarnings("unchecked")
+  private void addDependent(Runnable dependent) {
+    if (dependents == null) {
+      dependents = dependent;
+    } else if (dependents instanceof List) {
+      ((List<Runnable>) dependents).add(dependent);
+    } else {
+      List<Runnable> list = new ArrayList<>(4);
+      list.add((Runnable) dependents);
+      list.add(dependent);
+      dependents = list;
+    }
+  }
+
+  /**
+   * Called once on completion: hands the dependents to the dispatcher, or tracks an unobserved
+   * failure.
+   */
+  private void runDependents() {
+    if (timeout != null) {
+      timeout.cancel();
+      timeout = null;
+    }
+    if (dependents == null) {
+      if (reason != null) {
+        Unobserved.track(reason, () -> dependents == null ? reason : null);
+      }
+    } else if (dependents != OBSERVED) {
+      Dispatcher.dispatch(this::drainDependents);
+    }
+  }
+
+  @SuppressWarnings("unchecked")
+  private void drainDependents() {
+    Object toRun = dependents;
+    dependents = OBSERVED;
+    if (toRun instanceof List) {
+      for (Runnable dependent : (List<Runnable>) toRun) {
+        runDependent(dependent);
+      }
+    } else if (toRun != OBSERVED) {
+      runDependent((Runnable) toRun);
+    }
+  }
+
+  private static void runDependent(Runnable dependent) {
+    try {
+      dependent.run();
+    } catch (Throwable t) {
+      Dispatcher.reportUncaught(t);
+    }
+  }
+
+  static CompletionException wrap(Throwable t) {
+    return Failures.wrap(t);
+  }
+}
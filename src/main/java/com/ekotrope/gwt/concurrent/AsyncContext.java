@@ -0,0 +1,74 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.ekotrope.gwt.concurrent;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.impl.Contexts;
+import java.util.function.Supplier;
+
+import static javaemul.internal.InternalPreconditions.checkNotNull;
+
+/**
+ * A value following asynchronous control flow, such as the id of the tracing span a request
+ * belongs to. The value bound while a {@link CompletableFuture} stage, an {@code *Async} task or
+ * a timer is registered is bound again while it runs, whatever executor runs it.
+ * <pre>
+ * static final AsyncContext&lt;String&gt; SPAN = new AsyncContext&lt;&gt;();
+ *
+ * SPAN.call("load-42", () -&gt; fetch().thenApply(r -&gt; parse(r, SPAN.get())));
+ * </pre>
+ * When no value is bound, registering a callback costs a field read.
+ */
+public final class AsyncContext<T> {
+
+  /**
+   * Returns the value bound in the current context, {@code null} if none.
+   */
+  @SuppressWarnings("unchecked")
+  public T get() {
+    return (T) Contexts.get(this);
+  }
+
+  /**
+   * Calls {@code action} with {@code value} bound, and returns its result.
+   */
+  public <R> R call(T value, Supplier<R> action) {
+    checkNotNull(action);
+    Object previous = Contexts.swap(Contexts.with(this, value));
+    try {
+      return action.get();
+    } finally {
+      Contexts.swap(previous);
+    }
+  }
+
+  /**
+   * Runs {@code action} with {@code value} bound.
+   */
+  public void run(T value, Runnable action) {
+    checkNotNull(action);
+    call(value, () -> {
+      action.run();
+      return null;
+    });
+  }
+
+  /**
+   * Returns {@code task} bound to the current context, for callbacks this module does not
+   * register itself, such as event listeners.
+   */
+  public static Runnable wrap(Runnable task) {
+    return Contexts.wrap(checkNotNull(task));
+  }
+}
@@ -0,0 +1,172 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.ekotrope.gwt.concurrent;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.Future;
+import java.util.concurrent.impl.Failures;
+import java.util.function.Supplier;
+
+import static javaemul.internal.InternalPreconditions.checkNotNull;
+import static javaemul.internal.InternalPreconditions.checkState;
+
+/**
+ * Structured concurrency for futures: every child {@link #fork(Supplier) forked} in a scope is
+ * tracked, and the first child to fail cancels its siblings, so their stages are skipped instead
+ * of running for nothing.
+ * <pre>
+ * try (AsyncScope scope = new AsyncScope()) {
+ *   CompletableFuture&lt;User&gt; user = scope.fork(() -&gt; loadUser());
+ *   CompletableFuture&lt;Feed&gt; feed = scope.fork(() -&gt; loadFeed());
+ *   return scope.join().thenApply(ignored -&gt; render(user.join(), feed.join()));
+ * }
+ * </pre>
+ * The {@link #join() aggregated result} owns the children: closing a scope which has been joined
+ * leaves them running, cancelling the aggregated result cancels them. Closing a scope which has not
+ * been joined cancels them.
+ */
+public final class AsyncScope implements AutoCloseable {
+
+  private final List<Child<?>> children = new ArrayList<>();
+  private final Result result = new Result();
+  private int running;
+  private boolean joined;
+  private boolean closed;
+
+  /**
+   * Starts a child of this scope and returns its future. If the scope has already failed, the
+   * child is not started and the returned future is cancelled.
+   *
+   * @throws IllegalStateException if the scope has been joined or closed
+   */
+  public <T> CompletableFuture<T> fork(Supplier<? extends CompletionStage<T>> task) {
+    checkNotNull(task);
+    checkState(!joined && !closed, "scope is joined or closed");
+    Child<T> child = new Child<>();
+    if (result.isDone()) {
+      child.cancel(false);
+      return child;
+    }
+    children.add(child);
+    running++;
+    try {
+      child.start(checkNotNull(task.get()));
+    } catch (Throwable t) {
+      child.completeExceptionally(t);
+    }
+    // a dependent on the child also marks its failure as observed, the scope reports it
+    Futures.onSettled(child, (value, e) -> onChildDone(child, e));
+    return child;
+  }
+
+  /**
+   * Seals the scope and returns its aggregated result: completed once every child has succeeded
+   * or been cancelled, or exceptionally with a {@link CompletionException} caused by the first
+   * failure of a child.
+   */
+  public CompletableFuture<Void> join() {
+    joined = true;
+    if (running == 0) {
+      result.complete(null);
+    }
+    return result;
+  }
+
+  /**
+   * Seals the scope and, unless it has been joined, cancels the children still running.
+   */
+  @Override
+  public void close() {
+    closed = true;
+    if (!joined) {
+      result.cancel(false);
+    }
+  }
+
+  private void onChildDone(Child<?> child, Throwable e) {
+    running--;
+    children.remove(child);
+    if (e != null && !result.isDone() && !isCancellation(e)) {
+      result.completeExceptionally(Failures.wrap(e));
+    }
+    // a cancelled child does not fail the scope, but it no longer holds it up either
+    if (running == 0 && joined && !result.isDone()) {
+      result.complete(null);
+    }
+  }
+
+  private static boolean isCancellation(Throwable e) {
+    return e instanceof CancellationException
+        || e instanceof CompletionException && e.getCause() instanceof CancellationException;
+  }
+
+  private void cancelChildren() {
+    List<Child<?>> toCancel = new ArrayList<>(children);
+    children.clear();
+    for (Child<?> child : toCancel) {
+      child.cancel(false);
+    }
+  }
+
+  private final class Result extends CompletableFuture<Void> {
+    @Override
+    public boolean completeExceptionally(Throwable e) {
+      return stopIf(super.completeExceptionally(e));
+    }
+
+    @Override
+    public boolean cancel(boolean mayInterruptIfRunning) {
+      return stopIf(super.cancel(mayInterruptIfRunning));
+    }
+
+    private boolean stopIf(boolean completed) {
+      if (completed) {
+        cancelChildren();
+      }
+      return completed;
+    }
+  }
+
+  private static final class Child<T> extends CompletableFuture<T> {
+    private CompletionStage<T> stage;
+
+    void start(CompletionStage<T> started) {
+      stage = started;
+      Futures.onSettled(started, (value, e) -> {
+        if (e != null) {
+          completeExceptionally(e);
+        } else {
+          complete(value);
+        }
+      });
+    }
+
+    @Override
+    public boolean cancel(boolean mayInterruptIfRunning) {
+      if (!super.cancel(mayInterruptIfRunning)) {
+        return false;
+      }
+      if (stage instanceof Future) {
+        ((Future<?>) stage).cancel(false);
+      }
+      stage = null;
+      return true;
+    }
+  }
+}
@@ -0,0 +1,321 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.ekotrope.gwt.concurrent;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+import java.util.function.DoubleBinaryOperator;
+import java.util.function.DoubleConsumer;
+import java.util.function.DoubleFunction;
+import java.util.function.DoubleSupplier;
+import java.util.function.DoubleToIntFunction;
+import java.util.function.DoubleToLongFunction;
+import java.util.function.DoubleUnaryOperator;
+import java.util.function.ToDoubleFunction;
+
+import static javaemul.internal.InternalPreconditions.checkNotNull;
+
+/**
+ * A {@link CompletableFuture} counterpart which holds a {@code double} result without boxing it.
+ * Stages with primitive functions ({@code thenApplyAsInt}, {@code thenApplyAsLong},
+ * {@code thenApplyAsDouble}, {@code thenCombine}) stay unboxed; {@link #boxed()} and
+ * {@link #of(CompletionStage)} convert from and to the generic type.
+ */
+public class DoubleCompletableFuture extends AbstractPrimitiveFuture {
+
+  /**
+   * Action receiving the result of a future: its value, or the failure if the future failed.
+   */
+  @FunctionalInterface
+  public interface ResultConsumer {
+    void accept(double value, Throwable failure);
+  }
+
+  /**
+   * Function of the result of a future: its value, or the failure if the future failed.
+   */
+  @FunctionalInterface
+  public interface ResultFunction<U> {
+    U apply(double value, Throwable failure);
+  }
+
+  public static DoubleCompletableFuture completedFuture(double value) {
+    DoubleCompletableFuture future = new DoubleCompletableFuture();
+    future.complete(value);
+    return future;
+  }
+
+  public static DoubleCompletableFuture supplyAsync(DoubleSupplier supplier) {
+    return supplyAsync(supplier, ASYNC_EXECUTOR);
+  }
+
+  public static DoubleCompletableFuture supplyAsync(DoubleSupplier supplier, Executor executor) {
+    checkNotNull(supplier);
+    DoubleCompletableFuture future = new DoubleCompletableFuture();
+    supply(future, () -> future.complete(supplier.getAsDouble()), executor);
+    return future;
+  }
+
+  /**
+   * Returns a future which completes with the unboxed result of {@code stage}. A {@code null}
+   * result completes the returned future exceptionally with a {@link NullPointerException}.
+   */
+  public static DoubleCompletableFuture of(CompletionStage<? extends Number> stage) {
+    DoubleCompletableFuture future = new DoubleCompletableFuture();
+    adopt(stage, future, value -> future.complete(value.doubleValue()));
+    return future;
+  }
+
+  private double value;
+
+  public boolean complete(double value) {
+    if (isDone()) {
+      return false;
+    }
+    this.value = value;
+    completeValue();
+    return true;
+  }
+
+  /**
+   * Like {@link CompletableFuture#get()} this does not block: an incomplete future throws
+   * {@link InterruptedException}.
+   */
+  public double get() throws InterruptedException, ExecutionException {
+    checkGet();
+    return value;
+  }
+
+  /**
+   * Like {@link CompletableFuture#join()} this does not block: an incomplete future yields
+   * {@code 0}.
+   */
+  public double join() {
+    return getNow(0);
+  }
+
+  public double getNow(double valueIfAbsent) {
+    if (!isDone()) {
+      return valueIfAbsent;
+    }
+    throwIfFailed();
+    return value;
+  }
+
+  /**
+   * Completes this future exceptionally with a {@link java.util.concurrent.TimeoutException} if
+   * it is not completed within the given time.
+   *
+   * @return this future
+   */
+  public DoubleCompletableFuture orTimeout(long timeout, TimeUnit unit) {
+    expireAfter(timeout, unit);
+    return this;
+  }
+
+  public IntCompletableFuture thenApplyAsInt(DoubleToIntFunction fn) {
+    return thenApplyAsIntAsync0(fn, null);
+  }
+
+  public IntCompletableFuture thenApplyAsIntAsync(DoubleToIntFunction fn) {
+    return thenApplyAsIntAsync0(fn, ASYNC_EXECUTOR);
+  }
+
+  public IntCompletableFuture thenApplyAsIntAsync(DoubleToIntFunction fn, Executor executor) {
+    checkNotNull(executor);
+    return thenApplyAsIntAsync0(fn, executor);
+  }
+
+  private IntCompletableFuture thenApplyAsIntAsync0(DoubleToIntFunction fn, Executor executor) {
+    checkNotNull(fn);
+    IntCompletableFuture future = new IntCompletableFuture();
+    onSuccess(future, () -> future.complete(fn.applyAsInt(value)), executor);
+    return future;
+  }
+
+  public LongCompletableFuture thenApplyAsLong(DoubleToLongFunction fn) {
+    return thenApplyAsLongAsync0(fn, null);
+  }
+
+  public LongCompletableFuture thenApplyAsLongAsync(DoubleToLongFunction fn) {
+    return thenApplyAsLongAsync0(fn, ASYNC_EXECUTOR);
+  }
+
+  public LongCompletableFuture thenApplyAsLongAsync(DoubleToLongFunction fn, Executor executor) {
+    checkNotNull(executor);
+    return thenApplyAsLongAsync0(fn, executor);
+  }
+
+  private LongCompletableFuture thenApplyAsLongAsync0(DoubleToLongFunction fn, Executor executor) {
+    checkNotNull(fn);
+    LongCompletableFuture future = new LongCompletableFuture();
+    onSuccess(future, () -> future.complete(fn.applyAsLong(value)), executor);
+    return future;
+  }
+
+  public DoubleCompletableFuture thenApplyAsDouble(DoubleUnaryOperator fn) {
+    return thenApplyAsDoubleAsync0(fn, null);
+  }
+
+  public DoubleCompletableFuture thenApplyAsDoubleAsync(DoubleUnaryOperator fn) {
+    return thenApplyAsDoubleAsync0(fn, ASYNC_EXECUTOR);
+  }
+
+  public DoubleCompletableFuture thenApplyAsDoubleAsync(DoubleUnaryOperator fn, Executor executor) {
+    checkNotNull(executor);
+    return thenApplyAsDoubleAsync0(fn, executor);
+  }
+
+  private DoubleCompletableFuture thenApplyAsDoubleAsync0(DoubleUnaryOperator fn, Executor executor) {
+    checkNotNull(fn);
+    DoubleCompletableFuture future = new DoubleCompletableFuture();
+    onSuccess(future, () -> future.complete(fn.applyAsDouble(value)), executor);
+    return future;
+  }
+
+  public <U> CompletableFuture<U> thenApply(DoubleFunction<? extends U> fn) {
+    return thenApplyAsync0(fn, null);
+  }
+
+  public <U> CompletableFuture<U> thenApplyAsync(DoubleFunction<? extends U> fn) {
+    return thenApplyAsync0(fn, ASYNC_EXECUTOR);
+  }
+
+  public <U> CompletableFuture<U> thenApplyAsync(DoubleFunction<? extends U> fn, Executor executor) {
+    checkNotNull(executor);
+    return thenApplyAsync0(fn, executor);
+  }
+
+  private <U> CompletableFuture<U> thenApplyAsync0(DoubleFunction<? extends U> fn, Executor executor) {
+    checkNotNull(fn);
+    return applyStage(() -> fn.apply(value), executor);
+  }
+
+  public CompletableFuture<Void> thenAccept(DoubleConsumer action) {
+    return thenAcceptAsync0(action, null);
+  }
+
+  public CompletableFuture<Void> thenAcceptAsync(DoubleConsumer action) {
+    return thenAcceptAsync0(action, ASYNC_EXECUTOR);
+  }
+
+  public CompletableFuture<Void> thenAcceptAsync(DoubleConsumer action, Executor executor) {
+    checkNotNull(executor);
+    return thenAcceptAsync0(action, executor);
+  }
+
+  private CompletableFuture<Void> thenAcceptAsync0(DoubleConsumer action, Executor executor) {
+    checkNotNull(action);
+    return thenApplyAsync0(r -> {
+      action.accept(r);
+      return null;
+    }, executor);
+  }
+
+  public <U> CompletableFuture<U> thenCompose(DoubleFunction<? extends CompletionStage<U>> fn) {
+    return thenComposeAsync0(fn, null);
+  }
+
+  public <U> CompletableFuture<U> thenComposeAsync(DoubleFunction<? extends CompletionStage<U>> fn) {
+    return thenComposeAsync0(fn, ASYNC_EXECUTOR);
+  }
+
+  public <U> CompletableFuture<U> thenComposeAsync(DoubleFunction<? extends CompletionStage<U>> fn, Executor executor) {
+    checkNotNull(executor);
+    return thenComposeAsync0(fn, executor);
+  }
+
+  private <U> CompletableFuture<U> thenComposeAsync0(DoubleFunction<? extends CompletionStage<U>> fn, Executor executor) {
+    checkNotNull(fn);
+    return composeStage(() -> fn.apply(value), executor);
+  }
+
+  public DoubleCompletableFuture thenCombine(DoubleCompletableFuture other, DoubleBinaryOperator fn) {
+    return thenCombineAsync0(other, fn, null);
+  }
+
+  public DoubleCompletableFuture thenCombineAsync(DoubleCompletableFuture other, DoubleBinaryOperator fn) {
+    return thenCombineAsync0(other, fn, ASYNC_EXECUTOR);
+  }
+
+  public DoubleCompletableFuture thenCombineAsync(DoubleCompletableFuture other, DoubleBinaryOperator fn, Executor executor) {
+    checkNotNull(executor);
+    return thenCombineAsync0(other, fn, executor);
+  }
+
+  private DoubleCompletableFuture thenCombineAsync0(DoubleCompletableFuture other, DoubleBinaryOperator fn, Executor executor) {
+    checkNotNull(other);
+    checkNotNull(fn);
+    DoubleCompletableFuture future = new DoubleCompletableFuture();
+    combineStage(other, future, () -> future.complete(fn.applyAsDouble(value, other.value)), executor);
+    return future;
+  }
+
+  public DoubleCompletableFuture whenComplete(ResultConsumer action) {
+    return whenCompleteAsync0(action, null);
+  }
+
+  public DoubleCompletableFuture whenCompleteAsync(ResultConsumer action) {
+    return whenCompleteAsync0(action, ASYNC_EXECUTOR);
+  }
+
+  public DoubleCompletableFuture whenCompleteAsync(ResultConsumer action, Executor executor) {
+    checkNotNull(executor);
+    return whenCompleteAsync0(action, executor);
+  }
+
+  private DoubleCompletableFuture whenCompleteAsync0(ResultConsumer action, Executor executor) {
+    checkNotNull(action);
+    DoubleCompletableFuture future = new DoubleCompletableFuture();
+    whenCompleteStage(future, () -> action.accept(value, reason()), () -> future.complete(value),
+        executor);
+    return future;
+  }
+
+  public <U> CompletableFuture<U> handle(ResultFunction<? extends U> fn) {
+    return handleAsync0(fn, null);
+  }
+
+  public <U> CompletableFuture<U> handleAsync(ResultFunction<? extends U> fn) {
+    return handleAsync0(fn, ASYNC_EXECUTOR);
+  }
+
+  public <U> CompletableFuture<U> handleAsync(ResultFunction<? extends U> fn, Executor executor) {
+    checkNotNull(executor);
+    return handleAsync0(fn, executor);
+  }
+
+  private <U> CompletableFuture<U> handleAsync0(ResultFunction<? extends U> fn, Executor executor) {
+    checkNotNull(fn);
+    return handleStage(reason -> fn.apply(value, reason), executor);
+  }
+
+  public DoubleCompletableFuture exceptionally(ToDoubleFunction<Throwable> fn) {
+    checkNotNull(fn);
+    DoubleCompletableFuture future = new DoubleCompletableFuture();
+    exceptionallyStage(future, () -> future.complete(value),
+        () -> future.complete(fn.applyAsDouble(reason())));
+    return future;
+  }
+
+  /**
+   * Returns a generic view of this future. The view is created once and shared by all callers.
+   */
+  public CompletableFuture<Double> boxed() {
+    return boxedStage(() -> value);
+  }
+}
@@ -0,0 +1,42 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.ekotrope.gwt.concurrent;
+
+import java.util.concurrent.CompletionStage;
+import java.util.function.BiConsumer;
+
+/**
+ * Helpers shared by the futures of this package.
+ */
+final class Futures {
+
+  /**
+   * Runs {@code action} with the result of {@code stage} once it completes.
+   * <p>
+   * Subscribes with {@link CompletionStage#handle} rather than
+   * {@link CompletionStage#whenComplete}: the stage whenComplete returns fails in turn, and with
+   * nothing depending on it that failure would be reported as unobserved although
+   * {@code action} consumed it. An exception thrown by {@code action} is still reported.
+   */
+  static <T> void onSettled(CompletionStage<T> stage,
+      BiConsumer<? super T, ? super Throwable> action) {
+
+    stage.handle((value, e) -> {
+      action.accept(value, e);
+      return null;
+    });
+  }
+
+  private Futures() { }
+}
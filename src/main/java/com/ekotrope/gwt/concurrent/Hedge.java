@@ -0,0 +1,174 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.ekotrope.gwt.concurrent;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.impl.Timers;
+import java.util.function.Supplier;
+
+import static javaemul.internal.InternalPreconditions.checkArgument;
+import static javaemul.internal.InternalPreconditions.checkNotNull;
+
+/**
+ * Hedged requests: if an attempt has not succeeded within a delay, a duplicate attempt is started
+ * and the first successful one wins. The other attempts are then cancelled, which also releases
+ * the callbacks registered on them (attempts which are not {@link Future}s cannot be cancelled and
+ * keep theirs until they complete).
+ * <p>
+ * A {@code Hedge} counts the hedges it fired and how many of them won, which tells whether its
+ * delay is well chosen.
+ */
+public final class Hedge {
+
+  /**
+   * Calls {@code attempt} once, and again every {@code delay} up to {@code maxHedges} more times
+   * as long as no attempt has succeeded. See {@link #call(Supplier)}.
+   */
+  public static <T> CompletableFuture<T> hedge(Supplier<? extends CompletionStage<T>> attempt,
+      long delay, TimeUnit unit, int maxHedges) {
+
+    return new Hedge(delay, unit, maxHedges).call(attempt);
+  }
+
+  private final double delayMillis;
+  private final int maxHedges;
+  private int hedgesFired;
+  private int hedgesWon;
+
+  public Hedge(long delay, TimeUnit unit, int maxHedges) {
+    checkArgument(delay >= 0, "delay must not be negative");
+    checkArgument(maxHedges >= 0, "maxHedges must not be negative");
+    this.delayMillis = unit.toMillis(delay);
+    this.maxHedges = maxHedges;
+  }
+
+  /**
+   * Returns a future completed with the result of the first attempt to succeed. A failed attempt
+   * is ignored while others are in flight; if none is, the next hedge starts right away instead of
+   * after its delay. Once no attempt is in flight and no hedge is left, the future fails with the
+   * last failure. Cancelling the returned future cancels every attempt in flight.
+   */
+  public <T> CompletableFuture<T> call(Supplier<? extends CompletionStage<T>> attempt) {
+    checkNotNull(attempt);
+    Hedging<T> hedging = new Hedging<>(attempt);
+    hedging.fire();
+    return hedging;
+  }
+
+  /**
+   * Returns the number of duplicate attempts started so far.
+   */
+  public int getHedgesFired() {
+    return hedgesFired;
+  }
+
+  /**
+   * Returns the number of calls whose result came from a duplicate attempt.
+   */
+  public int getHedgesWon() {
+    return hedgesWon;
+  }
+
+  private final class Hedging<T> extends CompletableFuture<T> {
+    private final Supplier<? extends CompletionStage<T>> attempt;
+    private final List<CompletionStage<T>> inFlight = new ArrayList<>(2);
+    private int attempts;
+    private Timers.Timeout timer;
+
+    Hedging(Supplier<? extends CompletionStage<T>> attempt) {
+      this.attempt = attempt;
+    }
+
+    void fire() {
+      timer = null;
+      if (isDone()) {
+        return;
+      }
+      int index = attempts++;
+      if (index > 0) {
+        hedgesFired++;
+      }
+      if (index < maxHedges) {
+        timer = Timers.schedule(this::fire, delayMillis);
+      }
+      CompletionStage<T> stage;
+      try {
+        stage = checkNotNull(attempt.get());
+      } catch (Throwable t) {
+        onFailure(t);
+        return;
+      }
+      inFlight.add(stage);
+      Futures.onSettled(stage, (value, e) -> {
+        if (inFlight.remove(stage)) {
+          if (e != null) {
+            onFailure(e);
+          } else if (complete(value) && index > 0) {
+            hedgesWon++;
+          }
+        }
+      });
+    }
+
+    private void onFailure(Throwable e) {
+      if (!inFlight.isEmpty()) {
+        return;
+      }
+      if (timer != null) {
+        // nothing left to wait for, the pending hedge starts now
+        timer.cancel();
+        fire();
+      } else {
+        completeExceptionally(e);
+      }
+    }
+
+    @Override
+    public boolean complete(T value) {
+      return stopIf(super.complete(value));
+    }
+
+    @Override
+    public boolean completeExceptionally(Throwable e) {
+      return stopIf(super.completeExceptionally(e));
+    }
+
+    @Override
+    public boolean cancel(boolean mayInterruptIfRunning) {
+      return stopIf(super.cancel(mayInterruptIfRunning));
+    }
+
+    private boolean stopIf(boolean completed) {
+      if (completed) {
+        if (timer != null) {
+          timer.cancel();
+          timer = null;
+        }
+        List<CompletionStage<T>> losers = new ArrayList<>(inFlight);
+        inFlight.clear();
+        for (CompletionStage<T> loser : losers) {
+          if (loser instanceof Future) {
+            ((Future<?>) loser).cancel(false);
+          }
+        }
+      }
+      return completed;
+    }
+  }
+}
@@ -0,0 +1,321 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.ekotrope.gwt.concurrent;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+import java.util.function.IntBinaryOperator;
+import java.util.function.IntConsumer;
+import java.util.function.IntFunction;
+import java.util.function.IntSupplier;
+import java.util.function.IntToDoubleFunction;
+import java.util.function.IntToLongFunction;
+import java.util.function.IntUnaryOperator;
+import java.util.function.ToIntFunction;
+
+import static javaemul.internal.InternalPreconditions.checkNotNull;
+
+/**
+ * A {@link CompletableFuture} counterpart which holds an {@code int} result without boxing it.
+ * Stages with primitive functions ({@code thenApplyAsInt}, {@code thenApplyAsLong},
+ * {@code thenApplyAsDouble}, {@code thenCombine}) stay unboxed; {@link #boxed()} and
+ * {@link #of(CompletionStage)} convert from and to the generic type.
+ */
+public class IntCompletableFuture extends AbstractPrimitiveFuture {
+
+  /**
+   * Action receiving the result of a future: its value, or the failure if the future failed.
+   */
+  @FunctionalInterface
+  public interface ResultConsumer {
+    void accept(int value, Throwable failure);
+  }
+
+  /**
+   * Function of the result of a future: its value, or the failure if the future failed.
+   */
+  @FunctionalInterface
+  public interface ResultFunction<U> {
+    U apply(int value, Throwable failure);
+  }
+
+  public static IntCompletableFuture completedFuture(int value) {
+    IntCompletableFuture future = new IntCompletableFuture();
+    future.complete(value);
+    return future;
+  }
+
+  public static IntCompletableFuture supplyAsync(IntSupplier supplier) {
+    return supplyAsync(supplier, ASYNC_EXECUTOR);
+  }
+
+  public static IntCompletableFuture supplyAsync(IntSupplier supplier, Executor executor) {
+    checkNotNull(supplier);
+    IntCompletableFuture future = new IntCompletableFuture();
+    supply(future, () -> future.complete(supplier.getAsInt()), executor);
+    return future;
+  }
+
+  /**
+   * Returns a future which completes with the unboxed result of {@code stage}. A {@code null}
+   * result completes the returned future exceptionally with a {@link NullPointerException}.
+   */
+  public static IntCompletableFuture of(CompletionStage<? extends Number> stage) {
+    IntCompletableFuture future = new IntCompletableFuture();
+    adopt(stage, future, value -> future.complete(value.intValue()));
+    return future;
+  }
+
+  private int value;
+
+  public boolean complete(int value) {
+    if (isDone()) {
+      return false;
+    }
+    this.value = value;
+    completeValue();
+    return true;
+  }
+
+  /**
+   * Like {@link CompletableFuture#get()} this does not block: an incomplete future throws
+   * {@link InterruptedException}.
+   */
+  public int get() throws InterruptedException, ExecutionException {
+    checkGet();
+    return value;
+  }
+
+  /**
+   * Like {@link CompletableFuture#join()} this does not block: an incomplete future yields
+   * {@code 0}.
+   */
+  public int join() {
+    return getNow(0);
+  }
+
+  public int getNow(int valueIfAbsent) {
+    if (!isDone()) {
+      return valueIfAbsent;
+    }
+    throwIfFailed();
+    return value;
+  }
+
+  /**
+   * Completes this future exceptionally with a {@link java.util.concurrent.TimeoutException} if
+   * it is not completed within the given time.
+   *
+   * @return this future
+   */
+  public IntCompletableFuture orTimeout(long timeout, TimeUnit unit) {
+    expireAfter(timeout, unit);
+    return this;
+  }
+
+  public IntCompletableFuture thenApplyAsInt(IntUnaryOperator fn) {
+    return thenApplyAsIntAsync0(fn, null);
+  }
+
+  public IntCompletableFuture thenApplyAsIntAsync(IntUnaryOperator fn) {
+    return thenApplyAsIntAsync0(fn, ASYNC_EXECUTOR);
+  }
+
+  public IntCompletableFuture thenApplyAsIntAsync(IntUnaryOperator fn, Executor executor) {
+    checkNotNull(executor);
+    return thenApplyAsIntAsync0(fn, executor);
+  }
+
+  private IntCompletableFuture thenApplyAsIntAsync0(IntUnaryOperator fn, Executor executor) {
+    checkNotNull(fn);
+    IntCompletableFuture future = new IntCompletableFuture();
+    onSuccess(future, () -> future.complete(fn.applyAsInt(value)), executor);
+    return future;
+  }
+
+  public LongCompletableFuture thenApplyAsLong(IntToLongFunction fn) {
+    return thenApplyAsLongAsync0(fn, null);
+  }
+
+  public LongCompletableFuture thenApplyAsLongAsync(IntToLongFunction fn) {
+    return thenApplyAsLongAsync0(fn, ASYNC_EXECUTOR);
+  }
+
+  public LongCompletableFuture thenApplyAsLongAsync(IntToLongFunction fn, Executor executor) {
+    checkNotNull(executor);
+    return thenApplyAsLongAsync0(fn, executor);
+  }
+
+  private LongCompletableFuture thenApplyAsLongAsync0(IntToLongFunction fn, Executor executor) {
+    checkNotNull(fn);
+    LongCompletableFuture future = new LongCompletableFuture();
+    onSuccess(future, () -> future.complete(fn.applyAsLong(value)), executor);
+    return future;
+  }
+
+  public DoubleCompletableFuture thenApplyAsDouble(IntToDoubleFunction fn) {
+    return thenApplyAsDoubleAsync0(fn, null);
+  }
+
+  public DoubleCompletableFuture thenApplyAsDoubleAsync(IntToDoubleFunction fn) {
+    return thenApplyAsDoubleAsync0(fn, ASYNC_EXECUTOR);
+  }
+
+  public DoubleCompletableFuture thenApplyAsDoubleAsync(IntToDoubleFunction fn, Executor executor) {
+    checkNotNull(executor);
+    return thenApplyAsDoubleAsync0(fn, executor);
+  }
+
+  private DoubleCompletableFuture thenApplyAsDoubleAsync0(IntToDoubleFunction fn, Executor executor) {
+    checkNotNull(fn);
+    DoubleCompletableFuture future = new DoubleCompletableFuture();
+    onSuccess(future, () -> future.complete(fn.applyAsDouble(value)), executor);
+    return future;
+  }
+
+  public <U> CompletableFuture<U> thenApply(IntFunction<? extends U> fn) {
+    return thenApplyAsync0(fn, null);
+  }
+
+  public <U> CompletableFuture<U> thenApplyAsync(IntFunction<? extends U> fn) {
+    return thenApplyAsync0(fn, ASYNC_EXECUTOR);
+  }
+
+  public <U> CompletableFuture<U> thenApplyAsync(IntFunction<? extends U> fn, Executor executor) {
+    checkNotNull(executor);
+    return thenApplyAsync0(fn, executor);
+  }
+
+  private <U> CompletableFuture<U> thenApplyAsync0(IntFunction<? extends U> fn, Executor executor) {
+    checkNotNull(fn);
+    return applyStage(() -> fn.apply(value), executor);
+  }
+
+  public CompletableFuture<Void> thenAccept(IntConsumer action) {
+    return thenAcceptAsync0(action, null);
+  }
+
+  public CompletableFuture<Void> thenAcceptAsync(IntConsumer action) {
+    return thenAcceptAsync0(action, ASYNC_EXECUTOR);
+  }
+
+  public CompletableFuture<Void> thenAcceptAsync(IntConsumer action, Executor executor) {
+    checkNotNull(executor);
+    return thenAcceptAsync0(action, executor);
+  }
+
+  private CompletableFuture<Void> thenAcceptAsync0(IntConsumer action, Executor executor) {
+    checkNotNull(action);
+    return thenApplyAsync0(r -> {
+      action.accept(r);
+      return null;
+    }, executor);
+  }
+
+  public <U> CompletableFuture<U> thenCompose(IntFunction<? extends CompletionStage<U>> fn) {
+    return thenComposeAsync0(fn, null);
+  }
+
+  public <U> CompletableFuture<U> thenComposeAsync(IntFunction<? extends CompletionStage<U>> fn) {
+    return thenComposeAsync0(fn, ASYNC_EXECUTOR);
+  }
+
+  public <U> CompletableFuture<U> thenComposeAsync(IntFunction<? extends CompletionStage<U>> fn, Executor executor) {
+    checkNotNull(executor);
+    return thenComposeAsync0(fn, executor);
+  }
+
+  private <U> CompletableFuture<U> thenComposeAsync0(IntFunction<? extends CompletionStage<U>> fn, Executor executor) {
+    checkNotNull(fn);
+    return composeStage(() -> fn.apply(value), executor);
+  }
+
+  public IntCompletableFuture thenCombine(IntCompletableFuture other, IntBinaryOperator fn) {
+    return thenCombineAsync0(other, fn, null);
+  }
+
+  public IntCompletableFuture thenCombineAsync(IntCompletableFuture other, IntBinaryOperator fn) {
+    return thenCombineAsync0(other, fn, ASYNC_EXECUTOR);
+  }
+
+  public IntCompletableFuture thenCombineAsync(IntCompletableFuture other, IntBinaryOperator fn, Executor executor) {
+    checkNotNull(executor);
+    return thenCombineAsync0(other, fn, executor);
+  }
+
+  private IntCompletableFuture thenCombineAsync0(IntCompletableFuture other, IntBinaryOperator fn, Executor executor) {
+    checkNotNull(other);
+    checkNotNull(fn);
+    IntCompletableFuture future = new IntCompletableFuture();
+    combineStage(other, future, () -> future.complete(fn.applyAsInt(value, other.value)), executor);
+    return future;
+  }
+
+  public IntCompletableFuture whenComplete(ResultConsumer action) {
+    return whenCompleteAsync0(action, null);
+  }
+
+  public IntCompletableFuture whenCompleteAsync(ResultConsumer action) {
+    return whenCompleteAsync0(action, ASYNC_EXECUTOR);
+  }
+
+  public IntCompletableFuture whenCompleteAsync(ResultConsumer action, Executor executor) {
+    checkNotNull(executor);
+    return whenCompleteAsync0(action, executor);
+  }
+
+  private IntCompletableFuture whenCompleteAsync0(ResultConsumer action, Executor executor) {
+    checkNotNull(action);
+    IntCompletableFuture future = new IntCompletableFuture();
+    whenCompleteStage(future, () -> action.accept(value, reason()), () -> future.complete(value),
+        executor);
+    return future;
+  }
+
+  public <U> CompletableFuture<U> handle(ResultFunction<? extends U> fn) {
+    return handleAsync0(fn, null);
+  }
+
+  public <U> CompletableFuture<U> handleAsync(ResultFunction<? extends U> fn) {
+    return handleAsync0(fn, ASYNC_EXECUTOR);
+  }
+
+  public <U> CompletableFuture<U> handleAsync(ResultFunction<? extends U> fn, Executor executor) {
+    checkNotNull(executor);
+    return handleAsync0(fn, executor);
+  }
+
+  private <U> CompletableFuture<U> handleAsync0(ResultFunction<? extends U> fn, Executor executor) {
+    checkNotNull(fn);
+    return handleStage(reason -> fn.apply(value, reason), executor);
+  }
+
+  public IntCompletableFuture exceptionally(ToIntFunction<Throwable> fn) {
+    checkNotNull(fn);
+    IntCompletableFuture future = new IntCompletableFuture();
+    exceptionallyStage(future, () -> future.complete(value),
+        () -> future.complete(fn.applyAsInt(reason())));
+    return future;
+  }
+
+  /**
+   * Returns a generic view of this future. The view is created once and shared by all callers.
+   */
+  public CompletableFuture<Integer> boxed() {
+    return boxedStage(() -> value);
+  }
+}
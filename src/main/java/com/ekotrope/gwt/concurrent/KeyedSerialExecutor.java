@@ -0,0 +1,102 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.ekotrope.gwt.concurrent;
+
+import java.util.ArrayDeque;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.Executor;
+import java.util.concurrent.impl.Contexts;
+
+import static javaemul.internal.InternalPreconditions.checkNotNull;
+
+/**
+ * Runs tasks one at a time and in submission order per key, like a {@link SerialExecutor} per
+ * key: the tasks of a key run as one batch on the underlying executor, and the batches of
+ * different keys interleave. The queue of a key is dropped once drained, so idle keys cost
+ * nothing.
+ * <p>
+ * {@link #forKey(Object)} returns the executor to pass to the {@code *Async} methods of
+ * {@link java.util.concurrent.CompletableFuture}. Tasks given to {@link #execute(Runnable)} use
+ * the {@code null} key.
+ *
+ * @param <K> the type of keys, compared with {@code equals}
+ */
+public final class KeyedSerialExecutor<K> implements Executor {
+
+  private final Executor executor;
+  private final Map<K, ArrayDeque<Runnable>> queues = new HashMap<>();
+
+  public KeyedSerialExecutor() {
+    this(SerialExecutor.DEFAULT_EXECUTOR);
+  }
+
+  public KeyedSerialExecutor(Executor executor) {
+    this.executor = checkNotNull(executor);
+  }
+
+  /**
+   * Returns an executor running its tasks in order with the other tasks of {@code key}.
+   */
+  public Executor forKey(K key) {
+    return command -> execute(key, command);
+  }
+
+  public void execute(K key, Runnable command) {
+    Runnable task = Contexts.wrap(checkNotNull(command));
+    ArrayDeque<Runnable> queue = queues.get(key);
+    if (queue != null) {
+      // a batch is scheduled or running for the key
+      queue.add(task);
+      return;
+    }
+    ArrayDeque<Runnable> created = new ArrayDeque<>(4);
+    created.add(task);
+    queues.put(key, created);
+    try {
+      executor.execute(() -> drain(key, created));
+    } catch (RuntimeException e) {
+      queues.remove(key);
+      throw e;
+    }
+  }
+
+  @Override
+  public void execute(Runnable command) {
+    execute(null, command);
+  }
+
+  /**
+   * Returns the number of tasks waiting to run for {@code key}.
+   */
+  public int getQueueLength(K key) {
+    ArrayDeque<Runnable> queue = queues.get(key);
+    return queue == null ? 0 : queue.size();
+  }
+
+  /**
+   * Returns the number of keys with tasks waiting or running.
+   */
+  public int getActiveKeyCount() {
+    return queues.size();
+  }
+
+  private void drain(K key, ArrayDeque<Runnable> queue) {
+    try {
+      SerialExecutor.drain(queue);
+    } finally {
+      queues.remove(key);
+    }
+  }
+}
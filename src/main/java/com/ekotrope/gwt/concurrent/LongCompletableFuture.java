@@ -0,0 +1,321 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.ekotrope.gwt.concurrent;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+import java.util.function.LongBinaryOperator;
+import java.util.function.LongConsumer;
+import java.util.function.LongFunction;
+import java.util.function.LongSupplier;
+import java.util.function.LongToDoubleFunction;
+import java.util.function.LongToIntFunction;
+import java.util.function.LongUnaryOperator;
+import java.util.function.ToLongFunction;
+
+import static javaemul.internal.InternalPreconditions.checkNotNull;
+
+/**
+ * A {@link CompletableFuture} counterpart which holds a {@code long} result without boxing it.
+ * Stages with primitive functions ({@code thenApplyAsInt}, {@code thenApplyAsLong},
+ * {@code thenApplyAsDouble}, {@code thenCombine}) stay unboxed; {@link #boxed()} and
+ * {@link #of(CompletionStage)} convert from and to the generic type.
+ */
+public class LongCompletableFuture extends AbstractPrimitiveFuture {
+
+  /**
+   * Action receiving the result of a future: its value, or the failure if the future failed.
+   */
+  @FunctionalInterface
+  public interface ResultConsumer {
+    void accept(long value, Throwable failure);
+  }
+
+  /**
+   * Function of the result of a future: its value, or the failure if the future failed.
+   */
+  @FunctionalInterface
+  public interface ResultFunction<U> {
+    U apply(long value, Throwable failure);
+  }
+
+  public static LongCompletableFuture completedFuture(long value) {
+    LongCompletableFuture future = new LongCompletableFuture();
+    future.complete(value);
+    return future;
+  }
+
+  public static LongCompletableFuture supplyAsync(LongSupplier supplier) {
+    return supplyAsync(supplier, ASYNC_EXECUTOR);
+  }
+
+  public static LongCompletableFuture supplyAsync(LongSupplier supplier, Executor executor) {
+    checkNotNull(supplier);
+    LongCompletableFuture future = new LongCompletableFuture();
+    supply(future, () -> future.complete(supplier.getAsLong()), executor);
+    return future;
+  }
+
+  /**
+   * Returns a future which completes with the unboxed result of {@code stage}. A {@code null}
+   * result completes the returned future exceptionally with a {@link NullPointerException}.
+   */
+  public static LongCompletableFuture of(CompletionStage<? extends Number> stage) {
+    LongCompletableFuture future = new LongCompletableFuture();
+    adopt(stage, future, value -> future.complete(value.longValue()));
+    return future;
+  }
+
+  private long value;
+
+  public boolean complete(long value) {
+    if (isDone()) {
+      return false;
+    }
+    this.value = value;
+    completeValue();
+    return true;
+  }
+
+  /**
+   * Like {@link CompletableFuture#get()} this does not block: an incomplete future throws
+   * {@link InterruptedException}.
+   */
+  public long get() throws InterruptedException, ExecutionException {
+    checkGet();
+    return value;
+  }
+
+  /**
+   * Like {@link CompletableFuture#join()} this does not block: an incomplete future yields
+   * {@code 0}.
+   */
+  public long join() {
+    return getNow(0);
+  }
+
+  public long getNow(long valueIfAbsent) {
+    if (!isDone()) {
+      return valueIfAbsent;
+    }
+    throwIfFailed();
+    return value;
+  }
+
+  /**
+   * Completes this future exceptionally with a {@link java.util.concurrent.TimeoutException} if
+   * it is not completed within the given time.
+   *
+   * @return this future
+   */
+  public LongCompletableFuture orTimeout(long timeout, TimeUnit unit) {
+    expireAfter(timeout, unit);
+    return this;
+  }
+
+  public IntCompletableFuture thenApplyAsInt(LongToIntFunction fn) {
+    return thenApplyAsIntAsync0(fn, null);
+  }
+
+  public IntCompletableFuture thenApplyAsIntAsync(LongToIntFunction fn) {
+    return thenApplyAsIntAsync0(fn, ASYNC_EXECUTOR);
+  }
+
+  public IntCompletableFuture thenApplyAsIntAsync(LongToIntFunction fn, Executor executor) {
+    checkNotNull(executor);
+    return thenApplyAsIntAsync0(fn, executor);
+  }
+
+  private IntCompletableFuture thenApplyAsIntAsync0(LongToIntFunction fn, Executor executor) {
+    checkNotNull(fn);
+    IntCompletableFuture future = new IntCompletableFuture();
+    onSuccess(future, () -> future.complete(fn.applyAsInt(value)), executor);
+    return future;
+  }
+
+  public LongCompletableFuture thenApplyAsLong(LongUnaryOperator fn) {
+    return thenApplyAsLongAsync0(fn, null);
+  }
+
+  public LongCompletableFuture thenApplyAsLongAsync(LongUnaryOperator fn) {
+    return thenApplyAsLongAsync0(fn, ASYNC_EXECUTOR);
+  }
+
+  public LongCompletableFuture thenApplyAsLongAsync(LongUnaryOperator fn, Executor executor) {
+    checkNotNull(executor);
+    return thenApplyAsLongAsync0(fn, executor);
+  }
+
+  private LongCompletableFuture thenApplyAsLongAsync0(LongUnaryOperator fn, Executor executor) {
+    checkNotNull(fn);
+    LongCompletableFuture future = new LongCompletableFuture();
+    onSuccess(future, () -> future.complete(fn.applyAsLong(value)), executor);
+    return future;
+  }
+
+  public DoubleCompletableFuture thenApplyAsDouble(LongToDoubleFunction fn) {
+    return thenApplyAsDoubleAsync0(fn, null);
+  }
+
+  public DoubleCompletableFuture thenApplyAsDoubleAsync(LongToDoubleFunction fn) {
+    return thenApplyAsDoubleAsync0(fn, ASYNC_EXECUTOR);
+  }
+
+  public DoubleCompletableFuture thenApplyAsDoubleAsync(LongToDoubleFunction fn, Executor executor) {
+    checkNotNull(executor);
+    return thenApplyAsDoubleAsync0(fn, executor);
+  }
+
+  private DoubleCompletableFuture thenApplyAsDoubleAsync0(LongToDoubleFunction fn, Executor executor) {
+    checkNotNull(fn);
+    DoubleCompletableFuture future = new DoubleCompletableFuture();
+    onSuccess(future, () -> future.complete(fn.applyAsDouble(value)), executor);
+    return future;
+  }
+
+  public <U> CompletableFuture<U> thenApply(LongFunction<? extends U> fn) {
+    return thenApplyAsync0(fn, null);
+  }
+
+  public <U> CompletableFuture<U> thenApplyAsync(LongFunction<? extends U> fn) {
+    return thenApplyAsync0(fn, ASYNC_EXECUTOR);
+  }
+
+  public <U> CompletableFuture<U> thenApplyAsync(LongFunction<? extends U> fn, Executor executor) {
+    checkNotNull(executor);
+    return thenApplyAsync0(fn, executor);
+  }
+
+  private <U> CompletableFuture<U> thenApplyAsync0(LongFunction<? extends U> fn, Executor executor) {
+    checkNotNull(fn);
+    return applyStage(() -> fn.apply(value), executor);
+  }
+
+  public CompletableFuture<Void> thenAccept(LongConsumer action) {
+    return thenAcceptAsync0(action, null);
+  }
+
+  public CompletableFuture<Void> thenAcceptAsync(LongConsumer action) {
+    return thenAcceptAsync0(action, ASYNC_EXECUTOR);
+  }
+
+  public CompletableFuture<Void> thenAcceptAsync(LongConsumer action, Executor executor) {
+    checkNotNull(executor);
+    return thenAcceptAsync0(action, executor);
+  }
+
+  private CompletableFuture<Void> thenAcceptAsync0(LongConsumer action, Executor executor) {
+    checkNotNull(action);
+    return thenApplyAsync0(r -> {
+      action.accept(r);
+      return null;
+    }, executor);
+  }
+
+  public <U> CompletableFuture<U> thenCompose(LongFunction<? extends CompletionStage<U>> fn) {
+    return thenComposeAsync0(fn, null);
+  }
+
+  public <U> CompletableFuture<U> thenComposeAsync(LongFunction<? extends CompletionStage<U>> fn) {
+    return thenComposeAsync0(fn, ASYNC_EXECUTOR);
+  }
+
+  public <U> CompletableFuture<U> thenComposeAsync(LongFunction<? extends CompletionStage<U>> fn, Executor executor) {
+    checkNotNull(executor);
+    return thenComposeAsync0(fn, executor);
+  }
+
+  private <U> CompletableFuture<U> thenComposeAsync0(LongFunction<? extends CompletionStage<U>> fn, Executor executor) {
+    checkNotNull(fn);
+    return composeStage(() -> fn.apply(value), executor);
+  }
+
+  public LongCompletableFuture thenCombine(LongCompletableFuture other, LongBinaryOperator fn) {
+    return thenCombineAsync0(other, fn, null);
+  }
+
+  public LongCompletableFuture thenCombineAsync(LongCompletableFuture other, LongBinaryOperator fn) {
+    return thenCombineAsync0(other, fn, ASYNC_EXECUTOR);
+  }
+
+  public LongCompletableFuture thenCombineAsync(LongCompletableFuture other, LongBinaryOperator fn, Executor executor) {
+    checkNotNull(executor);
+    return thenCombineAsync0(other, fn, executor);
+  }
+
+  private LongCompletableFuture thenCombineAsync0(LongCompletableFuture other, LongBinaryOperator fn, Executor executor) {
+    checkNotNull(other);
+    checkNotNull(fn);
+    LongCompletableFuture future = new LongCompletableFuture();
+    combineStage(other, future, () -> future.complete(fn.applyAsLong(value, other.value)), executor);
+    return future;
+  }
+
+  public LongCompletableFuture whenComplete(ResultConsumer action) {
+    return whenCompleteAsync0(action, null);
+  }
+
+  public LongCompletableFuture whenCompleteAsync(ResultConsumer action) {
+    return whenCompleteAsync0(action, ASYNC_EXECUTOR);
+  }
+
+  public LongCompletableFuture whenCompleteAsync(ResultConsumer action, Executor executor) {
+    checkNotNull(executor);
+    return whenCompleteAsync0(action, executor);
+  }
+
+  private LongCompletableFuture whenCompleteAsync0(ResultConsumer action, Executor executor) {
+    checkNotNull(action);
+    LongCompletableFuture future = new LongCompletableFuture();
+    whenCompleteStage(future, () -> action.accept(value, reason()), () -> future.complete(value),
+        executor);
+    return future;
+  }
+
+  public <U> CompletableFuture<U> handle(ResultFunction<? extends U> fn) {
+    return handleAsync0(fn, null);
+  }
+
+  public <U> CompletableFuture<U> handleAsync(ResultFunction<? extends U> fn) {
+    return handleAsync0(fn, ASYNC_EXECUTOR);
+  }
+
+  public <U> CompletableFuture<U> handleAsync(ResultFunction<? extends U> fn, Executor executor) {
+    checkNotNull(executor);
+    return handleAsync0(fn, executor);
+  }
+
+  private <U> CompletableFuture<U> handleAsync0(ResultFunction<? extends U> fn, Executor executor) {
+    checkNotNull(fn);
+    return handleStage(reason -> fn.apply(value, reason), executor);
+  }
+
+  public LongCompletableFuture exceptionally(ToLongFunction<Throwable> fn) {
+    checkNotNull(fn);
+    LongCompletableFuture future = new LongCompletableFuture();
+    exceptionallyStage(future, () -> future.complete(value),
+        () -> future.complete(fn.applyAsLong(reason())));
+    return future;
+  }
+
+  /**
+   * Returns a generic view of this future. The view is created once and shared by all callers.
+   */
+  public CompletableFuture<Long> boxed() {
+    return boxedStage(() -> value);
+  }
+}
@@ -0,0 +1,352 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.ekotrope.gwt.concurrent;
+
+import com.google.gwt.core.client.GWT;
+
+import jsinterop.annotations.JsFunction;
+import jsinterop.annotations.JsPackage;
+import jsinterop.annotations.JsType;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.impl.DeferredExecutor;
+import java.util.concurrent.impl.Timers;
+import java.util.function.Function;
+
+import static javaemul.internal.InternalPreconditions.checkNotNull;
+import static javaemul.internal.InternalPreconditions.checkState;
+
+/**
+ * Request/response channel over a {@code MessagePort} whose calls return
+ * {@link CompletableFuture}s.
+ * <p>
+ * Outgoing messages are queued and posted as a single batch per turn of the event loop.
+ * {@code ArrayBuffer} payloads (and the buffers behind typed arrays) are transferred rather than
+ * structured-cloned; further transferables can be passed to {@link #call(Object, Object...)}.
+ * Both ends of the port are expected to use a {@code MessagePortChannel}; either end may
+ * register a {@link #setHandler(Function) handler} to answer requests.
+ */
+public final class MessagePortChannel {
+
+  private static final Executor DEFAULT_FLUSH_EXECUTOR = new DeferredExecutor();
+
+  private static final int REQUEST = 0;
+  private static final int RESPONSE = 1;
+  private static final int FAILURE = 2;
+
+  private final Port port;
+  private final Executor flushExecutor;
+  private final Map<Integer, Pending> pending = new HashMap<>();
+  private final MessageListener messageListener = this::onMessage;
+  private final MessageListener closeListener = event -> close();
+  private List<Envelope> outgoing = new ArrayList<>();
+  private List<Object> transfer = new ArrayList<>();
+  private Function<Object, ? extends CompletionStage<?>> handler;
+  private int timeoutMillis;
+  private int nextId;
+  private boolean flushScheduled;
+  private boolean closed;
+
+  public MessagePortChannel(Object port) {
+    this(port, DEFAULT_FLUSH_EXECUTOR);
+  }
+
+  /**
+   * @param port a {@code MessagePort}; the channel takes over its message events
+   * @param flushExecutor executor used to post each batch of queued messages
+   */
+  public MessagePortChannel(Object port, Executor flushExecutor) {
+    this.port = (Port) checkNotNull(port);
+    this.flushExecutor = checkNotNull(flushExecutor);
+    this.port.addEventListener("message", messageListener);
+    this.port.addEventListener("close", closeListener);
+    this.port.start();
+  }
+
+  /**
+   * Sets the handler which answers requests from the other end. Requests received while no
+   * handler is set, and requests for which the handler throws or returns {@code null}, are
+   * answered with a failure.
+   */
+  public void setHandler(Function<Object, ? extends CompletionStage<?>> handler) {
+    this.handler = handler;
+  }
+
+  /**
+   * Sets the timeout applied to subsequent calls; {@code 0} (the default) disables timeouts.
+   */
+  public void setTimeout(long timeout, TimeUnit unit) {
+    long millis = unit.toMillis(timeout);
+    this.timeoutMillis = millis > Integer.MAX_VALUE ? Integer.MAX_VALUE : (int) millis;
+  }
+
+  /**
+   * Sends {@code payload} to the other end. The returned future completes with the response,
+   * exceptionally with a {@link TimeoutException} if none arrives in time, with a
+   * {@link CancellationException} if the channel is closed first, or with the error of
+   * {@code postMessage} if the request cannot be posted (e.g. a payload which cannot be cloned).
+   *
+   * @param transferables additional objects to transfer along with the payload
+   */
+  public CompletableFuture<Object> call(Object payload, Object... transferables) {
+    checkState(!closed, "channel is closed");
+    int id = nextId++;
+    CompletableFuture<Object> future = new CompletableFuture<>();
+    Pending call = new Pending(future, timeoutMillis);
+    if (timeoutMillis > 0) {
+      call.timeout = Timers.schedule(() -> onTimeout(id), timeoutMillis);
+    }
+    pending.put(id, call);
+    enqueue(envelope(id, REQUEST, payload), payload, transferables);
+    return future;
+  }
+
+  /**
+   * Closes the port and fails every pending call with a {@link CancellationException}.
+   */
+  public void close() {
+    if (closed) {
+      return;
+    }
+    closed = true;
+    port.removeEventListener("message", messageListener);
+    port.removeEventListener("close", closeListener);
+    port.close();
+    outgoing = null;
+    transfer = null;
+
+    List<Pending> calls = new ArrayList<>(pending.values());
+    pending.clear();
+    for (Pending call : calls) {
+      call.cancelTimeout();
+      call.future.completeExceptionally(new CancellationException("channel closed"));
+    }
+  }
+
+  public boolean isClosed() {
+    return closed;
+  }
+
+  /**
+   * Returns the number of calls still waiting for a response.
+   */
+  public int getPendingCount() {
+    return pending.size();
+  }
+
+  private void enqueue(Envelope envelope, Object payload, Object[] transferables) {
+    outgoing.add(envelope);
+    addTransferable(transferableBuffer(payload));
+    for (Object transferable : transferables) {
+      addTransferable(transferable);
+    }
+    if (!flushScheduled) {
+      flushScheduled = true;
+      flushExecutor.execute(this::flush);
+    }
+  }
+
+  private void addTransferable(Object transferable) {
+    if (transferable != null && !transfer.contains(transferable)) {
+      transfer.add(transferable);
+    }
+  }
+
+  private void flush() {
+    flushScheduled = false;
+    if (closed || outgoing.isEmpty()) {
+      return;
+    }
+    Object[] batch = outgoing.toArray();
+    Object[] transferables = transfer.toArray();
+    outgoing.clear();
+    transfer.clear();
+    try {
+      port.postMessage(batch, transferables);
+    } catch (Throwable t) {
+      // e.g. a DataCloneError or a detached buffer: nothing of the batch was posted
+      onPostFailed(batch, t);
+    }
+  }
+
+  /**
+   * Fails the calls whose requests were in {@code batch}, answers the requests whose responses
+   * were with a failure, and reports {@code failure}.
+   */
+  private void onPostFailed(Object[] batch, Throwable failure) {
+    for (Object message : batch) {
+      Envelope envelope = (Envelope) message;
+      if (envelope.type == REQUEST) {
+        Pending call = pending.remove(envelope.id);
+        if (call != null) {
+          call.cancelTimeout();
+          call.future.completeExceptionally(failure);
+        }
+      } else if (envelope.type == RESPONSE) {
+        respond(envelope.id, FAILURE, "response could not be posted: " + failure);
+      }
+    }
+    GWT.reportUncaughtException(failure);
+  }
+
+  private void onMessage(Object event) {
+    Object[] batch = ((MessageEvent) event).data;
+    if (batch == null) {
+      return;
+    }
+    for (Object message : batch) {
+      Envelope envelope = (Envelope) message;
+      if (envelope.type == REQUEST) {
+        onRequest(envelope.id, envelope.payload);
+      } else {
+        onResponse(envelope);
+      }
+    }
+  }
+
+  private void onRequest(int id, Object payload) {
+    if (handler == null) {
+      respond(id, FAILURE, "no handler registered");
+      return;
+    }
+    CompletionStage<?> response;
+    try {
+      response = handler.apply(payload);
+    } catch (Throwable t) {
+      respond(id, FAILURE, String.valueOf(t));
+      return;
+    }
+    if (response == null) {
+      respond(id, FAILURE, "handler returned no response");
+      return;
+    }
+    // the failure is answered to the peer, not reported here
+    Futures.onSettled(response, (value, e) -> {
+      if (e != null) {
+        Throwable cause = e instanceof CompletionException && e.getCause() != null
+            ? e.getCause() : e;
+        respond(id, FAILURE, String.valueOf(cause));
+      } else {
+        respond(id, RESPONSE, value);
+      }
+    });
+  }
+
+  private void respond(int id, int type, Object payload) {
+    if (!closed) {
+      enqueue(envelope(id, type, payload), payload, new Object[0]);
+    }
+  }
+
+  private void onResponse(Envelope envelope) {
+    Pending call = pending.remove(envelope.id);
+    if (call == null) {
+      // timed out or cancelled by close()
+      return;
+    }
+    call.cancelTimeout();
+    if (envelope.type == FAILURE) {
+      call.future.completeExceptionally(new CompletionException(String.valueOf(envelope.payload)));
+    } else {
+      call.future.complete(envelope.payload);
+    }
+  }
+
+  private void onTimeout(int id) {
+    Pending call = pending.remove(id);
+    if (call != null) {
+      call.future.completeExceptionally(
+          new TimeoutException("no response within " + call.timeoutMillis + "ms"));
+    }
+  }
+
+  private static Envelope envelope(int id, int type, Object payload) {
+    Envelope envelope = new Envelope();
+    envelope.id = id;
+    envelope.type = type;
+    envelope.payload = payload;
+    return envelope;
+  }
+
+  private static native Object transferableBuffer(Object payload) /*-{
+    if (payload instanceof ArrayBuffer) {
+      return payload;
+    }
+    if (ArrayBuffer.isView && ArrayBuffer.isView(payload)) {
+      return payload.buffer;
+    }
+    return null;
+  }-*/;
+
+  private static final class Pending {
+    final CompletableFuture<Object> future;
+    /**
+     * The timeout the call was made with, which later calls to setTimeout do not change.
+     */
+    final int timeoutMillis;
+    Timers.Timeout timeout;
+
+    Pending(CompletableFuture<Object> future, int timeoutMillis) {
+      this.future = future;
+      this.timeoutMillis = timeoutMillis;
+    }
+
+    void cancelTimeout() {
+      if (timeout != null) {
+        timeout.cancel();
+      }
+    }
+  }
+
+  @JsType(isNative = true, namespace = JsPackage.GLOBAL, name = "Object")
+  private static final class Envelope {
+    public int id;
+    public int type;
+    public Object payload;
+  }
+
+  @JsType(isNative = true, namespace = JsPackage.GLOBAL, name = "Object")
+  static final class MessageEvent {
+    public Object[] data;
+  }
+
+  @JsType(isNative = true, namespace = JsPackage.GLOBAL, name = "MessagePort")
+  interface Port {
+    void postMessage(Object message, Object[] transfer);
+
+    void addEventListener(String type, MessageListener listener);
+
+    void removeEventListener(String type, MessageListener listener);
+
+    void start();
+
+    void close();
+  }
+
+  @FunctionalInterface
+  @JsFunction
+  interface MessageListener {
+    void onEvent(Object event);
+  }
+}
@@ -0,0 +1,120 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.ekotrope.gwt.concurrent;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.impl.Registry;
+import java.util.concurrent.impl.Timers;
+
+import static javaemul.internal.InternalPreconditions.checkArgument;
+
+/**
+ * Lists the {@link CompletableFuture}s which are still pending, to find stalled chains. Only
+ * available when the {@code completablefuture.registry} configuration property is {@code true};
+ * otherwise the lists are always empty and the registry is compiled out.
+ * <pre>
+ * for (PendingFutures.PendingFuture pending : PendingFutures.oldest(10)) {
+ *   log(pending.getAgeMillis() + "ms, " + pending.getNumberOfDependents() + " dependents, "
+ *       + pending.getCreationSite());
+ * }
+ * </pre>
+ */
+public final class PendingFutures {
+
+  public static boolean isEnabled() {
+    return Registry.ENABLED;
+  }
+
+  /**
+   * Returns the number of futures pending.
+   */
+  public static int count() {
+    return Registry.ENABLED ? Registry.entries().size() : 0;
+  }
+
+  /**
+   * Returns the {@code n} futures which have been pending for longest, oldest first.
+   */
+  public static List<PendingFuture> oldest(int n) {
+    return top(n, Comparator.comparingDouble(pending -> -pending.getAgeMillis()));
+  }
+
+  /**
+   * Returns the {@code n} pending futures with the most dependents, most first.
+   */
+  public static List<PendingFuture> mostSubscribed(int n) {
+    return top(n, Comparator.comparingInt(pending -> -pending.getNumberOfDependents()));
+  }
+
+  private static List<PendingFuture> top(int n, Comparator<PendingFuture> order) {
+    checkArgument(n >= 0, "n must not be negative");
+    List<PendingFuture> pending = new ArrayList<>();
+    if (!Registry.ENABLED) {
+      return pending;
+    }
+    double now = Timers.now();
+    for (Registry.Entry entry : Registry.entries()) {
+      CompletableFuture<?> future = (CompletableFuture<?>) entry.get();
+      if (future != null) {
+        pending.add(new PendingFuture(future, entry.getCreationSite(),
+            now - entry.getCreatedAt(), future.getNumberOfDependents()));
+      }
+    }
+    pending.sort(order);
+    return pending.size() > n ? new ArrayList<>(pending.subList(0, n)) : pending;
+  }
+
+  /**
+   * A pending future, as of the query which returned it.
+   */
+  public static final class PendingFuture {
+    private final CompletableFuture<?> future;
+    private final String creationSite;
+    private final double ageMillis;
+    private final int dependents;
+
+    PendingFuture(CompletableFuture<?> future, String creationSite, double ageMillis,
+        int dependents) {
+
+      this.future = future;
+      this.creationSite = creationSite;
+      this.ageMillis = ageMillis;
+      this.dependents = dependents;
+    }
+
+    public CompletableFuture<?> getFuture() {
+      return future;
+    }
+
+    /**
+     * Returns the stack trace of the creation of the future, as formatted by the browser.
+     */
+    public String getCreationSite() {
+      return creationSite;
+    }
+
+    public double getAgeMillis() {
+      return ageMillis;
+    }
+
+    public int getNumberOfDependents() {
+      return dependents;
+    }
+  }
+
+  private PendingFutures() { }
+}
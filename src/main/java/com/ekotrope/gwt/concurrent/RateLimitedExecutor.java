@@ -0,0 +1,182 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.ekotrope.gwt.concurrent;
+
+import com.google.gwt.core.client.GWT;
+
+import java.util.ArrayDeque;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.impl.Contexts;
+import java.util.concurrent.impl.Timers;
+
+import static javaemul.internal.InternalPreconditions.checkArgument;
+import static javaemul.internal.InternalPreconditions.checkNotNull;
+
+/**
+ * {@link Executor} pacing the tasks given to another executor with a token bucket, e.g. to keep
+ * bursts of outbound requests under a server's rate limit. The bucket holds up to {@code burst}
+ * tokens and refills at {@code permitsPerSecond}; a task takes a token and is handed over at once,
+ * or waits in a FIFO queue. A single timer on the module's shared timer wakes the executor when
+ * the next token is due, however many tasks wait.
+ * <p>
+ * Unless a {@link #maxQueueLength(int) bound} is set the queue is unbounded; beyond the bound
+ * {@link #execute(Runnable)}, and so {@code supplyAsync} or {@code runAsync} given this executor,
+ * throws a {@link RejectedExecutionException}.
+ */
+public final class RateLimitedExecutor implements Executor {
+
+  /**
+   * Tolerance on the token count, which is recomputed from elapsed time.
+   */
+  private static final double EPSILON = 1e-9;
+
+  private final Executor executor;
+  private final double intervalMillis;
+  private final int burst;
+  private final ArrayDeque<Queued> queue = new ArrayDeque<>();
+  private int maxQueueLength = Integer.MAX_VALUE;
+  private double tokens;
+  private double refilledAt;
+  private Timers.Timeout timer;
+  private int released;
+  private int rejected;
+  private double totalWaitMillis;
+  private double maxWaitMillis;
+
+  /**
+   * @param executor the executor running the tasks once released
+   * @param permitsPerSecond the rate at which tasks are released in the long run
+   * @param burst the number of tasks which can be released at once after an idle period
+   */
+  public RateLimitedExecutor(Executor executor, double permitsPerSecond, int burst) {
+    checkArgument(permitsPerSecond > 0, "permitsPerSecond must be positive");
+    checkArgument(burst > 0, "burst must be positive");
+    this.executor = checkNotNull(executor);
+    this.intervalMillis = 1000 / permitsPerSecond;
+    this.burst = burst;
+    this.tokens = burst;
+    this.refilledAt = Timers.now();
+  }
+
+  /**
+   * Sets the number of tasks which can wait; further tasks are rejected.
+   *
+   * @return this executor
+   */
+  public RateLimitedExecutor maxQueueLength(int maxQueueLength) {
+    checkArgument(maxQueueLength >= 0, "maxQueueLength must not be negative");
+    this.maxQueueLength = maxQueueLength;
+    return this;
+  }
+
+  @Override
+  public void execute(Runnable command) {
+    checkNotNull(command);
+    refill();
+    if (queue.isEmpty() && tokens >= 1 - EPSILON) {
+      tokens--;
+      release(command, 0);
+      return;
+    }
+    if (queue.size() >= maxQueueLength) {
+      rejected++;
+      throw new RejectedExecutionException("rate limited queue is full");
+    }
+    queue.add(new Queued(Contexts.wrap(command), Timers.now()));
+    schedule();
+  }
+
+  /**
+   * Returns the number of tasks waiting for a token.
+   */
+  public int getQueueLength() {
+    return queue.size();
+  }
+
+  /**
+   * Returns how long the task at the head of the queue has waited, 0 if the queue is empty.
+   */
+  public double getOldestWaitMillis() {
+    Queued head = queue.peek();
+    return head == null ? 0 : Timers.now() - head.queuedAt;
+  }
+
+  /**
+   * Returns the mean time the released tasks waited for a token.
+   */
+  public double getAverageWaitMillis() {
+    return released == 0 ? 0 : totalWaitMillis / released;
+  }
+
+  public double getMaxWaitMillis() {
+    return maxWaitMillis;
+  }
+
+  public int getReleasedCount() {
+    return released;
+  }
+
+  public int getRejectedCount() {
+    return rejected;
+  }
+
+  private void refill() {
+    double now = Timers.now();
+    tokens = Math.min(burst, tokens + (now - refilledAt) / intervalMillis);
+    refilledAt = now;
+  }
+
+  private void schedule() {
+    if (timer == null) {
+      timer = Timers.schedule(this::releaseQueued, (1 - tokens) * intervalMillis);
+    }
+  }
+
+  private void releaseQueued() {
+    timer = null;
+    refill();
+    double now = Timers.now();
+    while (!queue.isEmpty() && tokens >= 1 - EPSILON) {
+      tokens--;
+      Queued next = queue.poll();
+      try {
+        release(next.task, now - next.queuedAt);
+      } catch (Throwable t) {
+        // e.g. rejected by the underlying executor, there is no caller to throw to
+        GWT.reportUncaughtException(t);
+      }
+    }
+    if (!queue.isEmpty()) {
+      schedule();
+    }
+  }
+
+  private void release(Runnable task, double waitMillis) {
+    released++;
+    totalWaitMillis += waitMillis;
+    maxWaitMillis = Math.max(maxWaitMillis, waitMillis);
+    executor.execute(task);
+  }
+
+  private static final class Queued {
+    final Runnable task;
+    final double queuedAt;
+
+    Queued(Runnable task, double queuedAt) {
+      this.task = task;
+      this.queuedAt = queuedAt;
+    }
+  }
+}
@@ -0,0 +1,236 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.ekotrope.gwt.concurrent;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.impl.Timers;
+import java.util.function.Predicate;
+import java.util.function.Supplier;
+
+import static javaemul.internal.InternalPreconditions.checkArgument;
+import static javaemul.internal.InternalPreconditions.checkNotNull;
+
+/**
+ * Retries asynchronous operations with exponential backoff.
+ * <p>
+ * Delays between attempts are scheduled on the shared {@link Timers}, so a retry loop runs in
+ * constant stack and keeps no more than the attempt in flight, however many attempts it takes.
+ */
+public final class Retry {
+
+  /**
+   * Calls {@code attempt} until the stage it returns succeeds or {@code policy} gives up, in which
+   * case the returned future fails with the failure of the last attempt (or a
+   * {@link TimeoutException} once the deadline passes). Completing or cancelling the returned
+   * future stops retrying and cancels the attempt in flight.
+   */
+  public static <T> CompletableFuture<T> withBackoff(
+      Supplier<? extends CompletionStage<T>> attempt, Policy policy) {
+
+    checkNotNull(attempt);
+    checkNotNull(policy);
+    Retrying<T> retrying = new Retrying<>(attempt, policy);
+    retrying.start();
+    return retrying;
+  }
+
+  /**
+   * When and how often to retry. The defaults are 3 attempts, a base delay of 100ms doubling up to
+   * 10s, a jitter of 0.5, retrying on any failure and no deadline.
+   */
+  public static final class Policy {
+    private int maxAttempts = 3;
+    private double baseDelayMillis = 100;
+    private double maxDelayMillis = 10000;
+    private double jitter = 0.5;
+    private Predicate<? super Throwable> retryable = t -> true;
+    private double deadlineMillis = Double.POSITIVE_INFINITY;
+
+    /**
+     * Sets the total number of attempts, including the first one.
+     */
+    public Policy maxAttempts(int maxAttempts) {
+      checkArgument(maxAttempts > 0, "maxAttempts must be positive");
+      this.maxAttempts = maxAttempts;
+      return this;
+    }
+
+    /**
+     * Sets the delay before the second attempt; it doubles for each further attempt.
+     */
+    public Policy baseDelay(long delay, TimeUnit unit) {
+      checkArgument(delay >= 0, "delay must not be negative");
+      this.baseDelayMillis = unit.toMillis(delay);
+      return this;
+    }
+
+    public Policy maxDelay(long delay, TimeUnit unit) {
+      checkArgument(delay >= 0, "delay must not be negative");
+      this.maxDelayMillis = unit.toMillis(delay);
+      return this;
+    }
+
+    /**
+     * Sets the fraction, between 0 and 1, by which each delay is randomly shortened.
+     */
+    public Policy jitter(double jitter) {
+      checkArgument(jitter >= 0 && jitter <= 1, "jitter must be between 0 and 1");
+      this.jitter = jitter;
+      return this;
+    }
+
+    /**
+     * Sets which failures are retried; others fail the returned future right away. The predicate
+     * is given the cause of {@link CompletionException}s.
+     */
+    public Policy retryIf(Predicate<? super Throwable> retryable) {
+      this.retryable = checkNotNull(retryable);
+      return this;
+    }
+
+    /**
+     * Sets the time after which the whole operation fails, counted from the first attempt.
+     */
+    public Policy deadline(long timeout, TimeUnit unit) {
+      checkArgument(timeout >= 0, "timeout must not be negative");
+      this.deadlineMillis = unit.toMillis(timeout);
+      return this;
+    }
+
+    Policy copy() {
+      Policy copy = new Policy();
+      copy.maxAttempts = maxAttempts;
+      copy.baseDelayMillis = baseDelayMillis;
+      copy.maxDelayMillis = maxDelayMillis;
+      copy.jitter = jitter;
+      copy.retryable = retryable;
+      copy.deadlineMillis = deadlineMillis;
+      return copy;
+    }
+
+    double delayMillis(int attempts) {
+      // capped exponent: a zero base delay times an infinite factor would not be a number
+      double factor = Math.pow(2, Math.min(attempts - 1, 52));
+      double delay = Math.min(maxDelayMillis, baseDelayMillis * factor);
+      return delay * (1 - jitter * Math.random());
+    }
+  }
+
+  private static final class Retrying<T> extends CompletableFuture<T> {
+    private final Supplier<? extends CompletionStage<T>> attempt;
+    private final Policy policy;
+    private final double deadline;
+    private int attempts;
+    private CompletionStage<T> current;
+    private Timers.Timeout timer;
+    private Timers.Timeout deadlineTimer;
+
+    Retrying(Supplier<? extends CompletionStage<T>> attempt, Policy policy) {
+      this.attempt = attempt;
+      this.policy = policy.copy();
+      this.deadline = Timers.now() + policy.deadlineMillis;
+    }
+
+    void start() {
+      if (policy.deadlineMillis != Double.POSITIVE_INFINITY) {
+        deadlineTimer = Timers.schedule(() -> completeExceptionally(
+            new TimeoutException("gave up after " + attempts + " attempts")),
+            policy.deadlineMillis);
+      }
+      next();
+    }
+
+    private void next() {
+      timer = null;
+      if (isDone()) {
+        return;
+      }
+      attempts++;
+      CompletionStage<T> stage;
+      try {
+        stage = checkNotNull(attempt.get());
+      } catch (Throwable t) {
+        onAttempt(null, t);
+        return;
+      }
+      current = stage;
+      Futures.onSettled(stage, (value, e) -> {
+        if (current == stage) {
+          current = null;
+          onAttempt(value, e);
+        }
+      });
+    }
+
+    private void onAttempt(T value, Throwable e) {
+      if (isDone()) {
+        return;
+      }
+      if (e == null) {
+        complete(value);
+        return;
+      }
+      Throwable cause = e instanceof CompletionException && e.getCause() != null
+          ? e.getCause() : e;
+      double delay = policy.delayMillis(attempts);
+      if (attempts >= policy.maxAttempts || !policy.retryable.test(cause)
+          || Timers.now() + delay >= deadline) {
+        completeExceptionally(e);
+      } else {
+        timer = Timers.schedule(this::next, delay);
+      }
+    }
+
+    @Override
+    public boolean complete(T value) {
+      return stopIf(super.complete(value));
+    }
+
+    @Override
+    public boolean completeExceptionally(Throwable e) {
+      return stopIf(super.completeExceptionally(e));
+    }
+
+    @Override
+    public boolean cancel(boolean mayInterruptIfRunning) {
+      return stopIf(super.cancel(mayInterruptIfRunning));
+    }
+
+    private boolean stopIf(boolean completed) {
+      if (completed) {
+        if (timer != null) {
+          timer.cancel();
+          timer = null;
+        }
+        if (deadlineTimer != null) {
+          deadlineTimer.cancel();
+          deadlineTimer = null;
+        }
+        if (current instanceof Future) {
+          CompletionStage<T> inFlight = current;
+          current = null;
+          ((Future<?>) inFlight).cancel(false);
+        }
+      }
+      return completed;
+    }
+  }
+
+  private Retry() { }
+}
@@ -0,0 +1,138 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.ekotrope.gwt.concurrent;
+
+import com.google.gwt.core.client.GWT;
+import com.google.gwt.core.client.Scheduler;
+import com.google.gwt.core.client.Scheduler.RepeatingCommand;
+import com.google.gwt.core.client.Scheduler.ScheduledCommand;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.Executor;
+
+import static javaemul.internal.InternalPreconditions.checkNotNull;
+
+/**
+ * {@link Executor}s backed by GWT's {@link Scheduler}, for use with the {@code *Async} methods of
+ * {@link java.util.concurrent.CompletableFuture}.
+ * <p>
+ * Tasks are queued and a single scheduler command is issued per batch, so every batch runs within
+ * one {@code $entry} however many tasks it contains. A task throwing an exception is reported
+ * through {@link GWT#reportUncaughtException(Throwable)} and does not prevent the rest of the
+ * batch from running.
+ */
+public final class SchedulerExecutors {
+
+  private static final Executor FINALLY = new BatchingExecutor() {
+    @Override
+    void schedule(ScheduledCommand drain) {
+      Scheduler.get().scheduleFinally(drain);
+    }
+  };
+
+  private static final Executor DEFERRED = new BatchingExecutor() {
+    @Override
+    void schedule(ScheduledCommand drain) {
+      Scheduler.get().scheduleDeferred(drain);
+    }
+  };
+
+  private static final Executor INCREMENTAL = new IncrementalExecutor();
+
+  /**
+   * Returns an executor running tasks through {@link Scheduler#scheduleFinally}, i.e. before the
+   * browser regains control from the current event handler. Tasks submitted outside of an
+   * {@code $entry} run at the end of the next one.
+   */
+  public static Executor finallyExecutor() {
+    return FINALLY;
+  }
+
+  /**
+   * Returns an executor running tasks through {@link Scheduler#scheduleDeferred}, after the browser
+   * has regained control.
+   */
+  public static Executor deferredExecutor() {
+    return DEFERRED;
+  }
+
+  /**
+   * Returns an executor running tasks through {@link Scheduler#scheduleIncremental}, one task per
+   * invocation of the repeating command, so that the scheduler can yield to the browser between
+   * tasks of long running work.
+   */
+  public static Executor incrementalExecutor() {
+    return INCREMENTAL;
+  }
+
+  private abstract static class BatchingExecutor implements Executor {
+    private List<Runnable> queue = new ArrayList<>();
+    private boolean scheduled;
+
+    @Override
+    public void execute(Runnable command) {
+      queue.add(checkNotNull(command));
+      if (!scheduled) {
+        scheduled = true;
+        schedule(this::drain);
+      }
+    }
+
+    abstract void schedule(ScheduledCommand drain);
+
+    private void drain() {
+      // tasks submitted while draining go into the next batch
+      List<Runnable> batch = queue;
+      queue = new ArrayList<>();
+      scheduled = false;
+      for (Runnable task : batch) {
+        run(task);
+      }
+    }
+  }
+
+  private static final class IncrementalExecutor implements Executor, RepeatingCommand {
+    private final Deque<Runnable> queue = new ArrayDeque<>();
+    private boolean scheduled;
+
+    @Override
+    public void execute(Runnable command) {
+      queue.add(checkNotNull(command));
+      if (!scheduled) {
+        scheduled = true;
+        Scheduler.get().scheduleIncremental(this);
+      }
+    }
+
+    @Override
+    public boolean execute() {
+      run(queue.poll());
+      scheduled = !queue.isEmpty();
+      return scheduled;
+    }
+  }
+
+  private static void run(Runnable task) {
+    try {
+      task.run();
+    } catch (Throwable t) {
+      GWT.reportUncaughtException(t);
+    }
+  }
+
+  private SchedulerExecutors() { }
+}
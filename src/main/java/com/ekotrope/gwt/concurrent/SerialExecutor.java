@@ -0,0 +1,93 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.ekotrope.gwt.concurrent;
+
+import com.google.gwt.core.client.GWT;
+
+import java.util.ArrayDeque;
+import java.util.concurrent.Executor;
+import java.util.concurrent.impl.Contexts;
+import java.util.concurrent.impl.DeferredExecutor;
+
+import static javaemul.internal.InternalPreconditions.checkNotNull;
+
+/**
+ * {@link Executor} running its tasks one at a time, in submission order, on another executor,
+ * for use with the {@code *Async} methods of {@link java.util.concurrent.CompletableFuture}
+ * instead of chaining every operation onto the previous future.
+ * <p>
+ * A single task is submitted to the underlying executor per batch, and tasks submitted while it
+ * runs join the batch, so the order holds whatever the underlying executor does. A task throwing
+ * an exception is reported through {@link GWT#reportUncaughtException(Throwable)} and does not
+ * prevent the following ones from running.
+ *
+ * @see KeyedSerialExecutor
+ */
+public final class SerialExecutor implements Executor {
+
+  static final Executor DEFAULT_EXECUTOR = new DeferredExecutor();
+
+  private final Executor executor;
+  private final ArrayDeque<Runnable> queue = new ArrayDeque<>();
+  private boolean scheduled;
+
+  public SerialExecutor() {
+    this(DEFAULT_EXECUTOR);
+  }
+
+  public SerialExecutor(Executor executor) {
+    this.executor = checkNotNull(executor);
+  }
+
+  @Override
+  public void execute(Runnable command) {
+    queue.add(Contexts.wrap(checkNotNull(command)));
+    if (!scheduled) {
+      scheduled = true;
+      try {
+        executor.execute(this::drain);
+      } catch (RuntimeException e) {
+        scheduled = false;
+        queue.clear();
+        throw e;
+      }
+    }
+  }
+
+  /**
+   * Returns the number of tasks waiting to run.
+   */
+  public int getQueueLength() {
+    return queue.size();
+  }
+
+  private void drain() {
+    try {
+      drain(queue);
+    } finally {
+      scheduled = false;
+    }
+  }
+
+  static void drain(ArrayDeque<Runnable> queue) {
+    Runnable task;
+    while ((task = queue.poll()) != null) {
+      try {
+        task.run();
+      } catch (Throwable t) {
+        GWT.reportUncaughtException(t);
+      }
+    }
+  }
+}
@@ -0,0 +1,130 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.ekotrope.gwt.concurrent;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.impl.Timers;
+import java.util.function.Supplier;
+
+import static javaemul.internal.InternalPreconditions.checkArgument;
+import static javaemul.internal.InternalPreconditions.checkNotNull;
+
+/**
+ * Latest-wins switch for requests superseding each other, such as the queries of a typeahead.
+ * Each {@link #submit(Supplier) submission} cancels the future returned for the previous one, so
+ * the stages chained on a stale response are skipped instead of running on outdated data.
+ * <p>
+ * Submissions can be debounced: a request is then only made once no newer submission has
+ * arrived for the given delay.
+ */
+public final class Switcher<T> {
+
+  private final double debounceMillis;
+  private Submission current;
+
+  public Switcher() {
+    this.debounceMillis = 0;
+  }
+
+  /**
+   * @param debounce how long a submission must stay the latest before its request is made
+   */
+  public Switcher(long debounce, TimeUnit unit) {
+    checkArgument(debounce >= 0, "debounce must not be negative");
+    this.debounceMillis = unit.toMillis(debounce);
+  }
+
+  /**
+   * Supersedes the previous submission and returns a future completed like the stage returned by
+   * {@code request}. It is cancelled, along with that stage if it is a {@link Future}, as soon as
+   * a newer submission arrives.
+   */
+  public CompletableFuture<T> submit(Supplier<? extends CompletionStage<T>> request) {
+    checkNotNull(request);
+    if (current != null) {
+      current.cancel(false);
+    }
+    Submission submission = new Submission(request);
+    current = submission;
+    if (debounceMillis > 0) {
+      submission.timer = Timers.schedule(submission::start, debounceMillis);
+    } else {
+      submission.start();
+    }
+    return submission;
+  }
+
+  /**
+   * Cancels the latest submission, if any.
+   */
+  public void cancel() {
+    if (current != null) {
+      current.cancel(false);
+    }
+  }
+
+  private final class Submission extends CompletableFuture<T> {
+    private final Supplier<? extends CompletionStage<T>> request;
+    private CompletionStage<T> stage;
+    private Timers.Timeout timer;
+
+    Submission(Supplier<? extends CompletionStage<T>> request) {
+      this.request = request;
+    }
+
+    void start() {
+      timer = null;
+      if (isDone()) {
+        return;
+      }
+      CompletionStage<T> started;
+      try {
+        started = checkNotNull(request.get());
+      } catch (Throwable t) {
+        completeExceptionally(t);
+        return;
+      }
+      stage = started;
+      Futures.onSettled(started, (value, e) -> {
+        if (e != null) {
+          completeExceptionally(e);
+        } else {
+          complete(value);
+        }
+      });
+    }
+
+    @Override
+    public boolean cancel(boolean mayInterruptIfRunning) {
+      if (!super.cancel(mayInterruptIfRunning)) {
+        return false;
+      }
+      if (current == this) {
+        current = null;
+      }
+      if (timer != null) {
+        timer.cancel();
+        timer = null;
+      }
+      if (stage instanceof Future) {
+        ((Future<?>) stage).cancel(false);
+      }
+      stage = null;
+      return true;
+    }
+  }
+}
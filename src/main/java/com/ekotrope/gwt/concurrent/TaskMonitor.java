@@ -0,0 +1,217 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.ekotrope.gwt.concurrent;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.impl.Monitors;
+import java.util.concurrent.impl.Timers;
+
+import static javaemul.internal.InternalPreconditions.checkArgument;
+import static javaemul.internal.InternalPreconditions.checkNotNull;
+
+/**
+ * Times the tasks of an executor to find the callbacks behind long tasks. Sampled tasks running
+ * longer than a threshold are reported to a {@link Listener} with their label and how long they
+ * waited in the queue; the queue waits, which measure the lag of the event loop, are collected in
+ * a {@link LagHistogram} handed to the listener after each window of samples.
+ * <p>
+ * A monitor is {@link #install() installed} on the default executor of
+ * {@link CompletableFuture}, where it also times the synchronous stages run once a future
+ * completes, or {@link #monitor(Executor) wraps} any other executor. The task running a stage is
+ * labelled by the class of the function given to the stage, or by the name of its future when
+ * tracing is enabled (see {@link CompletableFuture#named(String)}); other tasks by their class.
+ */
+public final class TaskMonitor {
+
+  /**
+   * Receives the reports of a monitor.
+   */
+  public interface Listener {
+    /**
+     * Called after a sampled task ran for at least the threshold.
+     */
+    void onSlowTask(String label, double runMillis, double waitMillis);
+
+    /**
+     * Called after each window of samples with the histogram of their queue waits, which is
+     * cleared afterwards.
+     */
+    void onLag(LagHistogram histogram);
+  }
+
+  /**
+   * Counts of queue waits in buckets bounded by powers of two milliseconds: bucket 0 holds waits
+   * under 1ms, bucket {@code i} waits from 2<sup>i-1</sup> up to 2<sup>i</sup>ms, the last bucket
+   * everything longer.
+   */
+  public static final class LagHistogram {
+    private static final int BUCKETS = 12;
+
+    private final int[] counts = new int[BUCKETS];
+    private int count;
+    private double max;
+
+    void add(double millis) {
+      int bucket = 0;
+      for (double bound = 1; millis >= bound && bucket < BUCKETS - 1; bound *= 2) {
+        bucket++;
+      }
+      counts[bucket]++;
+      count++;
+      max = Math.max(max, millis);
+    }
+
+    void clear() {
+      for (int i = 0; i < BUCKETS; i++) {
+        counts[i] = 0;
+      }
+      count = 0;
+      max = 0;
+    }
+
+    public int getBucketCount() {
+      return BUCKETS;
+    }
+
+    public int getCount(int bucket) {
+      return counts[bucket];
+    }
+
+    /**
+     * Returns the exclusive upper bound of {@code bucket} in milliseconds, infinite for the last.
+     */
+    public double getUpperBound(int bucket) {
+      return bucket == BUCKETS - 1 ? Double.POSITIVE_INFINITY : Math.pow(2, bucket);
+    }
+
+    public int getTotalCount() {
+      return count;
+    }
+
+    public double getMax() {
+      return max;
+    }
+
+    /**
+     * Returns the upper bound of the bucket holding the given percentile, a coarse estimate.
+     */
+    public double getPercentile(double percentile) {
+      int rank = (int) Math.ceil(count * percentile / 100);
+      int seen = 0;
+      for (int i = 0; i < BUCKETS; i++) {
+        seen += counts[i];
+        if (seen >= rank && seen > 0) {
+          return Math.min(getUpperBound(i), max);
+        }
+      }
+      return 0;
+    }
+  }
+
+  private final Listener listener;
+  private final LagHistogram histogram = new LagHistogram();
+  private final Monitors.Monitor wrapper = this::wrap;
+  private double thresholdMillis = 50;
+  private int sampleEvery = 1;
+  private int windowSize = 1000;
+  private int scheduled;
+
+  /**
+   * Creates a monitor timing every task, reporting those of 50ms or more and the lag after each
+   * 1000 samples.
+   */
+  public TaskMonitor(Listener listener) {
+    this.listener = checkNotNull(listener);
+  }
+
+  public TaskMonitor threshold(long threshold, TimeUnit unit) {
+    checkArgument(threshold >= 0, "threshold must not be negative");
+    this.thresholdMillis = unit.toMillis(threshold);
+    return this;
+  }
+
+  /**
+   * Times only one task out of {@code n}, so that the overhead stays negligible in production.
+   */
+  public TaskMonitor sampleEvery(int n) {
+    checkArgument(n > 0, "n must be positive");
+    this.sampleEvery = n;
+    return this;
+  }
+
+  /**
+   * Sets how many samples the lag histogram collects before being reported.
+   */
+  public TaskMonitor window(int samples) {
+    checkArgument(samples > 0, "samples must be positive");
+    this.windowSize = samples;
+    return this;
+  }
+
+  /**
+   * Monitors the default executor of {@link CompletableFuture}, the one running {@code *Async}
+   * stages without an explicit executor, and the synchronous stages of futures completed from now
+   * on, instead of any monitor installed before.
+   */
+  public void install() {
+    Monitors.install(wrapper);
+  }
+
+  /**
+   * Stops monitoring the default executor.
+   */
+  public static void uninstall() {
+    Monitors.install(null);
+  }
+
+  /**
+   * Returns an executor running its tasks on {@code executor}, monitored by this monitor.
+   */
+  public Executor monitor(Executor executor) {
+    checkNotNull(executor);
+    return command -> executor.execute(wrap(checkNotNull(command)));
+  }
+
+  private Runnable wrap(Runnable task) {
+    if (++scheduled < sampleEvery) {
+      return task;
+    }
+    scheduled = 0;
+    double scheduledAt = Timers.now();
+    return () -> {
+      double startedAt = Timers.now();
+      try {
+        task.run();
+      } finally {
+        double endedAt = Timers.now();
+        record(task, startedAt - scheduledAt, endedAt - startedAt);
+      }
+    };
+  }
+
+  private void record(Runnable task, double waitMillis, double runMillis) {
+    if (runMillis >= thresholdMillis) {
+      String label = task instanceof Monitors.Labelled
+          ? ((Monitors.Labelled) task).getLabel() : task.getClass().getName();
+      listener.onSlowTask(label, runMillis, waitMillis);
+    }
+    histogram.add(waitMillis);
+    if (histogram.getTotalCount() >= windowSize) {
+      listener.onLag(histogram);
+      histogram.clear();
+    }
+  }
+}
@@ -0,0 +1,171 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package java.util.concurrent;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.impl.Timers;
+
+import static javaemul.internal.InternalPreconditions.checkNotNull;
+
+/**
+ * Emulation of AbstractExecutorService.
+ * <p>
+ * {@link #invokeAll(Collection)} submits all its tasks as a single command, which runs them in one
+ * go, and returns without waiting for them. The command is a {@link Future}: cancelling it, as
+ * {@link #shutdownNow()} may do when it drops the command, cancels the tasks. {@link #invokeAny(Collection)} cannot wait for tasks
+ * running elsewhere either: it runs them inline one after another until one succeeds, so the
+ * losers are never started.
+ * See
+ * <a href="https://docs.oracle.com/javase/8/docs/api/java/util/concurrent/AbstractExecutorService.html">
+ * the official Java API doc</a> for details.
+ */
+public abstract class AbstractExecutorService implements ExecutorService {
+
+  protected <T> RunnableFuture<T> newTaskFor(Runnable runnable, T value) {
+    return new FutureTask<>(runnable, value);
+  }
+
+  protected <T> RunnableFuture<T> newTaskFor(Callable<T> callable) {
+    return new FutureTask<>(callable);
+  }
+
+  @Override
+  public Future<?> submit(Runnable task) {
+    return submit(task, null);
+  }
+
+  @Override
+  public <T> Future<T> submit(Runnable task, T result) {
+    RunnableFuture<T> future = newTaskFor(checkNotNull(task), result);
+    execute(future);
+    return future;
+  }
+
+  @Override
+  public <T> Future<T> submit(Callable<T> task) {
+    RunnableFuture<T> future = newTaskFor(checkNotNull(task));
+    execute(future);
+    return future;
+  }
+
+  @Override
+  public <T> List<Future<T>> invokeAll(Collection<? extends Callable<T>> tasks)
+      throws InterruptedException {
+
+    Batch<T> batch = new Batch<>(newTasksFor(tasks));
+    execute(batch);
+    return new ArrayList<>(batch.tasks);
+  }
+
+  /**
+   * Like {@link #invokeAll(Collection)}; the tasks which have not completed once the timeout
+   * elapses are cancelled.
+   */
+  @Override
+  public <T> List<Future<T>> invokeAll(Collection<? extends Callable<T>> tasks, long timeout,
+      TimeUnit unit) throws InterruptedException {
+
+    Batch<T> batch = new Batch<>(newTasksFor(tasks));
+    execute(batch);
+    if (!batch.isDone()) {
+      batch.timer = Timers.schedule(() -> batch.cancel(true), unit.toMillis(timeout));
+    }
+    return new ArrayList<>(batch.tasks);
+  }
+
+  @Override
+  public <T> T invokeAny(Collection<? extends Callable<T>> tasks)
+      throws InterruptedException, ExecutionException {
+
+    try {
+      return invokeAny(tasks, false, 0);
+    } catch (TimeoutException e) {
+      throw new AssertionError(e);
+    }
+  }
+
+  /**
+   * Like {@link #invokeAny(Collection)}; no further task is started once the timeout elapses.
+   */
+  @Override
+  public <T> T invokeAny(Collection<? extends Callable<T>> tasks, long timeout, TimeUnit unit)
+      throws InterruptedException, ExecutionException, TimeoutException {
+
+    return invokeAny(tasks, true, Timers.now() + unit.toMillis(timeout));
+  }
+
+  private <T> T invokeAny(Collection<? extends Callable<T>> tasks, boolean timed,
+      double deadline) throws ExecutionException, TimeoutException {
+
+    if (tasks.isEmpty()) {
+      throw new IllegalArgumentException();
+    }
+    ExecutionException failure = null;
+    for (Callable<T> task : tasks) {
+      if (timed && Timers.now() >= deadline) {
+        throw new TimeoutException();
+      }
+      RunnableFuture<T> future = newTaskFor(checkNotNull(task));
+      future.run();
+      try {
+        return future.get();
+      } catch (ExecutionException e) {
+        failure = e;
+      } catch (InterruptedException | CancellationException e) {
+        failure = new ExecutionException(e);
+      }
+    }
+    throw failure;
+  }
+
+  /**
+   * The tasks of an {@link #invokeAll(Collection)}, run as a single command. Once the batch is
+   * done, whether it ran or was cancelled, no task is left pending and the timer of a timed
+   * {@code invokeAll} is cancelled.
+   */
+  private static final class Batch<T> extends FutureTask<Void> {
+    final List<RunnableFuture<T>> tasks;
+    Timers.Timeout timer;
+
+    Batch(List<RunnableFuture<T>> tasks) {
+      super(() -> {
+        for (RunnableFuture<T> task : tasks) {
+          task.run();
+        }
+      }, null);
+      this.tasks = tasks;
+    }
+
+    @Override
+    protected void done() {
+      if (timer != null) {
+        timer.cancel();
+        timer = null;
+      }
+      for (RunnableFuture<T> task : tasks) {
+        task.cancel(false);
+      }
+    }
+  }
+
+  private <T> List<RunnableFuture<T>> newTasksFor(Collection<? extends Callable<T>> tasks) {
+    List<RunnableFuture<T>> futures = new ArrayList<>(tasks.size());
+    for (Callable<T> task : tasks) {
+      futures.add(newTaskFor(checkNotNull(task)));
+    }
+    return futures;
+  }
+}
@@ -15,9 +15,21 @@
  */
 package java.util.concurrent;
 
+import jsinterop.annotations.JsMethod;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.impl.Contexts;
 import java.util.concurrent.impl.DeferredExecutor;
-import java.util.concurrent.impl.Impl;
-import java.util.concurrent.impl.Promise;
+import java.util.concurrent.impl.Dispatcher;
+import java.util.concurrent.impl.Failures;
+import java.util.concurrent.impl.JsThenable;
+import java.util.concurrent.impl.Monitors;
+import java.util.concurrent.impl.Registry;
+import java.util.concurrent.impl.Timers;
+import java.util.concurrent.impl.Tracing;
+import java.util.concurrent.impl.Unobserved;
 import java.util.function.BiConsumer;
 import java.util.function.BiFunction;
 import java.util.function.Consumer;
@@ -57,20 +69,71 @@ public class CompletableFuture<T> implements Future<T>, CompletionStage<T> {
     checkNotNull(executor);
 
     CompletableFuture<T> future = new CompletableFuture<>();
-    executor.execute(() -> {
+    double queuedAt = Tracing.ENABLED ? Tracing.now() : 0;
+    executor.execute(Contexts.wrap(() -> {
+      // named right after supplyAsync returns, before the task runs
+      String name = future.name;
+      double startedAt = 0;
+      if (Tracing.ENABLED && name != null) {
+        startedAt = Tracing.now();
+        Tracing.measure(name + " queued", queuedAt, startedAt);
+      }
       try {
         future.tryCompleteValue(supplier.get());
       } catch (Throwable t) {
         future.tryCompleteThrowable(t);
       }
-    });
+      if (Tracing.ENABLED && name != null) {
+        Tracing.measure(name + " run", startedAt, Tracing.now());
+      }
+    }));
     return future;
   }
 
+  /**
+   * Like {@link #supplyAsync(Supplier)}, except that the supplier is not scheduled until the
+   * result is first demanded: a stage is registered on the returned future, it is combined with
+   * other futures, or its result is queried with {@code get}, {@code join} or {@code getNow}. The
+   * supplier runs at most once, its result is shared by all later consumers.
+   */
+  public static <T> CompletableFuture<T> supplyLazy(Supplier<T> supplier) {
+    return supplyLazy(supplier, DEFAULT_EXECUTOR);
+  }
+
+  public static <T> CompletableFuture<T> supplyLazy(Supplier<T> supplier, Executor executor) {
+    checkNotNull(supplier);
+    checkNotNull(executor);
+    return new LazyCompletableFuture<>(supplier, executor);
+  }
+
   public static <T> CompletableFuture<T> completedFuture(T value) {
     return new CompletableFuture<>(value, null);
   }
 
+  /**
+   * Returns a future completed by the given JavaScript {@code Promise} or thenable. The promise
+   * is subscribed to once, no intermediate native promise is created.
+   * Rejection reasons which are not Throwables are wrapped in a JavaScriptException.
+   */
+  @SuppressWarnings("unchecked")
+  public static <T> CompletableFuture<T> fromPromise(Object thenable) {
+    checkNotNull(thenable);
+    if (thenable instanceof CompletableFuture) {
+      return (CompletableFuture<T>) thenable;
+    }
+    CompletableFuture<T> future = new CompletableFuture<>();
+    ((JsThenable) thenable).then(
+        value -> {
+          future.tryCompleteStage((T) value, null);
+          return null;
+        },
+        reason -> {
+          future.tryCompleteStage(null, Failures.fromJs(reason));
+          return null;
+        });
+    return future;
+  }
+
   public static CompletableFuture<Void> allOf(CompletableFuture<?>... futures) {
     if (futures.length == 0) {
       return completedFuture(null);
@@ -87,18 +150,12 @@ public class CompletableFuture<T> implements Future<T>, CompletionStage<T> {
       }
     }
     if (completedFuture != null) {
-      return new CompletableFuture<>(null, completedFuture.reason);
-    }
-
-    CompletableFuture<Void> future = new CompletableFuture<>();
-    and(futures).then((value, reason) -> {
-      if (reason != null) {
-        future.tryCompleteThrowable(reason);
-      } else {
-        future.tryCompleteValue(null);
+      for (CompletableFuture<?> future : futures) {
+        future.observe();
       }
-    });
-    return future;
+      return new CompletableFuture<>(null, completedFuture.reason());
+    }
+    return and(null, futures);
   }
 
   public static CompletableFuture<Object> anyOf(CompletableFuture<?>... futures) {
@@ -108,84 +165,156 @@ public class CompletableFuture<T> implements Future<T>, CompletionStage<T> {
 
     for (CompletableFuture<?> future : futures) {
       if (future.isDone()) {
-        return new CompletableFuture<>(future.value, future.reason);
+        future.observe();
+        return new CompletableFuture<>(future.value(), future.reason());
       }
     }
-
-    CompletableFuture<Object> future = new CompletableFuture<>();
-    or(futures).then((value, reason) -> {
-      if (reason != null) {
-        future.tryCompleteThrowable(reason);
-      } else {
-        future.tryCompleteValue(value);
-      }
-    });
-    return future;
+    return or(null, futures);
   }
 
-  private static Promise<Void> and(CompletableFuture<?>... futures) {
-    return Impl.IMPL.allOf(toPromises(futures));
+  /**
+   * Returns a future completed once all {@code futures} succeed, or as soon as one fails.
+   *
+   * @param owner the future this one is an intermediate step of, if any; the callbacks
+   *     registered on {@code futures} are dropped once it completes
+   */
+  private static CompletableFuture<Void> and(CompletableFuture<?> owner,
+      CompletableFuture<?>... futures) {
+
+    CompletableFuture<Void> and = new CompletableFuture<>();
+    BiConsumer<Object, Throwable> callback = new BiConsumer<Object, Throwable>() {
+      int counter = futures.length;
+
+      @Override
+      public void accept(Object value, Throwable e) {
+        if (e != null) {
+          and.tryCompleteThrowable(e);
+        } else if (--counter == 0) {
+          and.tryCompleteValue(null);
+        }
+      }
+    };
+    for (CompletableFuture<?> future : futures) {
+      future.onStageComplete(owner != null ? owner : and, false, callback, null);
+    }
+    return and;
   }
 
-  private static Promise<Object> or(CompletableFuture<?>... futures) {
-    return Impl.IMPL.anyOf(toPromises(futures));
-  }
+  /**
+   * Returns a future completed like the first of {@code futures} to complete.
+   *
+   * @param owner see {@link #and(CompletableFuture, CompletableFuture[])}
+   */
+  private static CompletableFuture<Object> or(CompletableFuture<?> owner,
+      CompletableFuture<?>... futures) {
 
-  private static Promise[] toPromises(CompletableFuture<?>... futures) {
-    int length = futures.length;
-    Promise[] promises = new Promise[length];
-    for (int i = 0; i < length; i++) {
-      promises[i] = futures[i].promise;
+    CompletableFuture<Object> or = new CompletableFuture<>();
+    BiConsumer<Object, Throwable> callback = (value, e) -> {
+      if (e != null) {
+        or.tryCompleteThrowable(e);
+      } else {
+        or.tryCompleteValue(value);
+      }
+    };
+    for (CompletableFuture<?> future : futures) {
+      future.onStageComplete(owner != null ? owner : or, false, callback, null);
     }
-    return promises;
+    return or;
   }
 
+  /**
+   * @param label the label of the task running {@code action}, see {@link Monitors#labelled}
+   */
   private static <T> BiConsumer<? super T, ? super Throwable> runAsync(
-      Executor executor, BiConsumer<? super T, ? super Throwable> action) {
+      Executor executor, BiConsumer<? super T, ? super Throwable> action, Object label) {
 
     if (executor == null) {
       return action;
-    } else {
-      return (r, e) -> executor.execute(() -> action.accept(r, e));
     }
+    return (r, e) -> executor.execute(Monitors.labelled(label, () -> action.accept(r, e)));
   }
 
   private static final Executor DEFAULT_EXECUTOR = new DeferredExecutor();
 
-  private final Promise<T> promise;
-  private boolean done;
-  private T value;
-  private Throwable reason;
+  /**
+   * The {@link #result} of a future completed with {@code null}.
+   */
+  private static final Object NIL = new Object();
+
+  /**
+   * The {@link #dependents} of a completed future whose result has been consumed.
+   */
+  private static final Object OBSERVED = new Object();
+
+  /**
+   * {@code null} while incomplete, then the value ({@link #NIL} standing for {@code null}) or an
+   * {@link AltResult} holding the failure.
+   */
+  private Object result;
+  /**
+   * {@code null} until a dependent is registered, then the single dependent or a list of them,
+   * run once this future completes. {@link #OBSERVED} once the result has been consumed.
+   */
+  private Object dependents;
+  /**
+   * The fused chain this future is (the input of) a stage in, if it has not run yet.
+   */
+  private Fused fused;
+  /**
+   * The label set by {@link #named(String)}; only written, and compiled in, when tracing is
+   * enabled.
+   */
+  private String name;
+  private double completedAt;
+  /**
+   * The registration of this future while it is pending; only compiled in when the registry is
+   * enabled.
+   */
+  private Registry.Entry registration;
+  /**
+   * The deadline of this future, set by {@link #withDeadline(long, TimeUnit)} or inherited from
+   * the future this one is a stage of.
+   */
+  private Deadline deadline;
+  /**
+   * The timer set by {@link #orTimeout(long, TimeUnit)}, which only completes this future.
+   */
+  private Timers.Timeout timeout;
 
   public CompletableFuture() {
-    promise = Impl.IMPL.incomplete();
+    if (Registry.ENABLED) {
+      registration = Registry.register(this);
+    }
   }
 
   private CompletableFuture(T value, Throwable reason) {
-    this();
-    completeStage(value, reason); // TODO
+    completeStage(value, reason);
   }
 
   @Override
   public <U> CompletableFuture<U> thenApply(Function<? super T, ? extends U> fn) {
-    return thenApplyAsync0(fn, null);
+    return thenApplyAsync0(fn, null, fn);
   }
 
   @Override
   public <U> CompletableFuture<U> thenApplyAsync(Function<? super T, ? extends U> fn) {
-    return thenApplyAsync0(fn, DEFAULT_EXECUTOR);
+    return thenApplyAsync0(fn, DEFAULT_EXECUTOR, fn);
   }
 
   @Override
   public <U> CompletableFuture<U> thenApplyAsync(Function<? super T, ? extends U> fn, Executor executor) {
     checkNotNull(executor);
-    return thenApplyAsync0(fn, executor);
+    return thenApplyAsync0(fn, executor, fn);
   }
 
-  private <U> CompletableFuture<U> thenApplyAsync0(Function<? super T, ? extends U> fn, Executor executor) {
+  /**
+   * @param source the function given by the caller, to label the stage with
+   */
+  private <U> CompletableFuture<U> thenApplyAsync0(Function<? super T, ? extends U> fn,
+      Executor executor, Object source) {
     checkNotNull(fn);
-    CompletableFuture<U> future = new CompletableFuture<>();
-    onStageComplete((r, e) -> {
+    CompletableFuture<U> future = newStage();
+    onStageComplete(future, (r, e) -> {
       if (e != null) {
         future.tryCompleteThrowable(e);
       } else {
@@ -195,7 +324,7 @@ public class CompletableFuture<T> implements Future<T>, CompletionStage<T> {
           future.tryCompleteThrowable(ex);
         }
       }
-    }, executor);
+    }, executor, source);
     return future;
   }
 
@@ -220,7 +349,7 @@ public class CompletableFuture<T> implements Future<T>, CompletionStage<T> {
     return thenApplyAsync0((r) -> {
       action.accept(r);
       return null;
-    }, executor);
+    }, executor, action);
   }
 
   @Override
@@ -244,38 +373,38 @@ public class CompletableFuture<T> implements Future<T>, CompletionStage<T> {
     return thenApplyAsync0((r) -> {
       action.run();
       return null;
-    }, executor);
+    }, executor, action);
   }
 
   @Override
   public <U, V> CompletableFuture<V> thenCombine(CompletionStage<? extends U> other,
       BiFunction<? super T, ? super U, ? extends V> fn) {
 
-    return thenCombineAsync0(other, fn, null);
+    return thenCombineAsync0(other, fn, null, fn);
   }
 
   @Override
   public <U, V> CompletableFuture<V> thenCombineAsync(CompletionStage<? extends U> other,
       BiFunction<? super T, ? super U, ? extends V> fn) {
 
-    return thenCombineAsync0(other, fn, DEFAULT_EXECUTOR);
+    return thenCombineAsync0(other, fn, DEFAULT_EXECUTOR, fn);
   }
 
   @Override
   public <U, V> CompletableFuture<V> thenCombineAsync(CompletionStage<? extends U> other,
       BiFunction<? super T, ? super U, ? extends V> fn, Executor executor) {
     checkNotNull(executor);
-    return thenCombineAsync0(other, fn, executor);
+    return thenCombineAsync0(other, fn, executor, fn);
   }
 
   private <U, V> CompletableFuture<V> thenCombineAsync0(CompletionStage<? extends U> other,
-      BiFunction<? super T, ? super U, ? extends V> fn, Executor executor) {
+      BiFunction<? super T, ? super U, ? extends V> fn, Executor executor, Object source) {
 
     checkNotNull(fn);
-    CompletableFuture<V> future = new CompletableFuture<>();
+    CompletableFuture<V> future = newStage();
     CompletableFuture<T> first = this;
     CompletableFuture<? extends U> second = other.toCompletableFuture();
-    and(first, second).then(runAsync(executor, (ignored, e) -> {
+    and(future, first, second).onStageComplete(future, false, (ignored, e) -> {
       if (e != null) {
         future.tryCompleteThrowable(e);
       } else {
@@ -285,7 +414,7 @@ public class CompletableFuture<T> implements Future<T>, CompletionStage<T> {
           future.tryCompleteThrowable(ex);
         }
       }
-    }));
+    }, executor, source);
     return future;
   }
 
@@ -318,7 +447,7 @@ public class CompletableFuture<T> implements Future<T>, CompletionStage<T> {
     return thenCombineAsync0(other, (a, b) -> {
       action.accept(a, b);
       return null;
-    }, executor);
+    }, executor, action);
   }
 
   @Override
@@ -342,17 +471,17 @@ public class CompletableFuture<T> implements Future<T>, CompletionStage<T> {
     return thenCombineAsync0(other, (a, b) -> {
       action.run();
       return null;
-    }, executor);
+    }, executor, action);
   }
 
   @Override
   public <U> CompletableFuture<U> applyToEither(CompletionStage<? extends T> other, Function<? super T, U> fn) {
-    return applyToEitherAsync0(other, fn, null);
+    return applyToEitherAsync0(other, fn, null, fn);
   }
 
   @Override
   public <U> CompletableFuture<U> applyToEitherAsync(CompletionStage<? extends T> other, Function<? super T, U> fn) {
-    return applyToEitherAsync0(other, fn, DEFAULT_EXECUTOR);
+    return applyToEitherAsync0(other, fn, DEFAULT_EXECUTOR, fn);
   }
 
   @Override
@@ -360,16 +489,16 @@ public class CompletableFuture<T> implements Future<T>, CompletionStage<T> {
       Function<? super T, U> fn, Executor executor) {
 
     checkNotNull(executor);
-    return applyToEitherAsync0(other, fn, executor);
+    return applyToEitherAsync0(other, fn, executor, fn);
   }
 
   @SuppressWarnings("unchecked")
   private <U> CompletableFuture<U> applyToEitherAsync0(CompletionStage<? extends T> other,
-      Function<? super T, U> fn, Executor executor) {
+      Function<? super T, U> fn, Executor executor, Object source) {
 
     checkNotNull(fn);
-    CompletableFuture<U> future = new CompletableFuture<>();
-    or(this, other.toCompletableFuture()).then(runAsync(executor, (r, e) -> {
+    CompletableFuture<U> future = newStage();
+    or(future, this, other.toCompletableFuture()).onStageComplete(future, false, (r, e) -> {
       if (e != null) {
         future.tryCompleteThrowable(e);
       } else {
@@ -379,7 +508,7 @@ public class CompletableFuture<T> implements Future<T>, CompletionStage<T> {
           future.tryCompleteThrowable(ex);
         }
       }
-    }));
+    }, executor, source);
     return future;
   }
 
@@ -407,7 +536,7 @@ public class CompletableFuture<T> implements Future<T>, CompletionStage<T> {
     return applyToEitherAsync0(other, (r) -> {
       action.accept(r);
       return null;
-    }, executor);
+    }, executor, action);
   }
 
   @Override
@@ -432,7 +561,7 @@ public class CompletableFuture<T> implements Future<T>, CompletionStage<T> {
     return ((CompletableFuture<Object>) this).applyToEitherAsync0(other, (r) -> {
       action.run();
       return null;
-    }, executor);
+    }, executor, action);
   }
 
   @Override
@@ -453,34 +582,40 @@ public class CompletableFuture<T> implements Future<T>, CompletionStage<T> {
 
   private <U> CompletableFuture<U> thenComposeAsync0(Function<? super T, ? extends CompletionStage<U>> fn, Executor executor) {
     checkNotNull(fn);
-    CompletableFuture<U> future = new CompletableFuture<>();
-    onStageComplete((r, e) -> {
+    CompletableFuture<U> future = newStage();
+    onStageComplete(future, false, (r, e) -> {
       if (e != null) {
         future.tryCompleteThrowable(e);
       } else {
         try {
           CompletableFuture<U> newFuture = fn.apply(r).toCompletableFuture();
-          // TODO: async?
-          // TODO: whenCompleteAsync0?
-          newFuture.whenCompleteAsync0((r1, ex) -> {
+          Deadline inherited = future.deadline;
+          if (inherited != null) {
+            if (inherited.owner == future) {
+              inherited.timer.cancel();
+            }
+            // waiting for newFuture, the deadline needs a timer of its own
+            future.deadline = future.expireAt(inherited.at, newFuture);
+          }
+          newFuture.onStageComplete(future, false, (r1, ex) -> {
             if (ex != null) {
               future.tryCompleteThrowable(ex);
             } else {
               future.tryCompleteValue(r1);
             }
-          }, executor);
+          }, null);
         } catch (Throwable ex) {
           future.tryCompleteThrowable(ex);
         }
       }
-    }, null); // TODO: executor?
+    }, executor, fn);
     return future;
   }
 
   @Override
   public CompletableFuture<T> exceptionally(Function<Throwable, ? extends T> fn) {
     checkNotNull(fn);
-    return handle((r, e) -> e != null ? fn.apply(e) : r);
+    return handleAsync0((r, e) -> e != null ? fn.apply(e) : r, null, fn);
   }
 
   @Override
@@ -504,38 +639,187 @@ public class CompletableFuture<T> implements Future<T>, CompletionStage<T> {
     return handleAsync0((r, e) -> {
       action.accept(r, e);
       return r;
-    }, executor);
+    }, executor, action);
   }
 
   @Override
   public <U> CompletableFuture<U> handle(BiFunction<? super T, Throwable, ? extends U> fn) {
-    return handleAsync0(fn, null);
+    return handleAsync0(fn, null, fn);
   }
 
   @Override
   public <U> CompletableFuture<U> handleAsync(BiFunction<? super T, Throwable, ? extends U> fn) {
-    return handleAsync0(fn, DEFAULT_EXECUTOR);
+    return handleAsync0(fn, DEFAULT_EXECUTOR, fn);
   }
 
   @Override
   public <U> CompletableFuture<U> handleAsync(BiFunction<? super T, Throwable, ? extends U> fn, Executor executor) {
     checkNotNull(executor);
-    return handleAsync0(fn, executor);
+    return handleAsync0(fn, executor, fn);
   }
 
-  private <U> CompletableFuture<U> handleAsync0(BiFunction<? super T, Throwable, ? extends U> fn, Executor executor) {
+  private <U> CompletableFuture<U> handleAsync0(BiFunction<? super T, Throwable, ? extends U> fn,
+      Executor executor, Object source) {
     checkNotNull(fn);
-    CompletableFuture<U> future = new CompletableFuture<>();
-    onStageComplete((r, e) -> {
+    CompletableFuture<U> future = newStage();
+    onStageComplete(future, (r, e) -> {
       try {
         future.tryCompleteValue(fn.apply(r, e));
       } catch (Throwable ex) {
         future.tryCompleteThrowable(ex);
       }
-    }, executor);
+    }, executor, source);
+    return future;
+  }
+
+  /**
+   * Promises/A+ {@code then}, exported to JavaScript so that native code can {@code await} this
+   * future (or chain on it) without converting it to a native promise first. Arguments which are
+   * not functions are ignored. Callbacks always run asynchronously, a thenable returned by a
+   * callback is adopted by the returned future, and returning that future itself rejects it with a
+   * {@code TypeError}. A rejection callback receives the original reason: the cause of a
+   * {@link CompletionException}, as its backing JavaScript object. Not part of the Java API: chain
+   * with the {@link CompletionStage} methods.
+   * <p>
+   * This method is private and only reachable from JavaScript, so it is only kept when the
+   * application is compiled with {@code -generateJsInteropExports}; without that flag it is
+   * pruned and {@code await future} resolves to the future itself.
+   */
+  @JsMethod(name = "then")
+  private CompletableFuture<Object> jsThen(Object onFulfilled, Object onRejected) {
+    JsThenable.Callback fulfilled =
+        onFulfilled instanceof JsThenable.Callback ? (JsThenable.Callback) onFulfilled : null;
+    JsThenable.Callback rejected =
+        onRejected instanceof JsThenable.Callback ? (JsThenable.Callback) onRejected : null;
+
+    CompletableFuture<Object> future = newStage();
+    onStageComplete(future, false, (r, e) -> {
+      JsThenable.Callback callback = e == null ? fulfilled : rejected;
+      if (callback == null) {
+        future.tryCompleteStage(r, e);
+        return;
+      }
+      try {
+        Object result = callback.call(e == null ? r : Failures.toJs(e));
+        if (result == future) {
+          future.tryCompleteStage(null, Failures.typeError("Chaining cycle detected for promise"));
+        } else if (isThenable(result)) {
+          fromPromise(result).onStageComplete(future, false, future::tryCompleteStage, null);
+        } else {
+          future.tryCompleteValue(result);
+        }
+      } catch (Throwable ex) {
+        future.tryCompleteStage(null, ex);
+      }
+    }, isDone() ? DEFAULT_EXECUTOR : null);
     return future;
   }
 
+  /**
+   * Returns the executor used by the {@code *Async} methods called without one (JDK 9). It runs
+   * each task in a microtask rather than on {@link ForkJoinPool#commonPool()}, which yields to the
+   * event loop between time slices.
+   */
+  public Executor defaultExecutor() {
+    return DEFAULT_EXECUTOR;
+  }
+
+  /**
+   * Labels this future for profiling. When the {@code completablefuture.tracing} configuration
+   * property is {@code true}, the completion of a named future is marked with
+   * {@code performance.mark}, and {@code performance.measure} entries record the time each of its
+   * callbacks waited since the completion and how long it ran. For {@code supplyAsync(...)
+   * .named(...)} the time the task was queued and the time it ran are measured too. Otherwise
+   * this method does nothing and the instrumentation is compiled out.
+   *
+   * @return this future
+   */
+  public CompletableFuture<T> named(String name) {
+    if (Tracing.ENABLED) {
+      this.name = name;
+    }
+    return this;
+  }
+
+  /**
+   * Completes this future exceptionally with a {@link TimeoutException} if it is not completed
+   * within the given time (JDK 9). As in the JDK, only this future is affected: stages derived
+   * from it still run once it completes, see {@link #withDeadline(long, TimeUnit)} for a deadline
+   * they share.
+   *
+   * @return this future
+   */
+  public CompletableFuture<T> orTimeout(long timeout, TimeUnit unit) {
+    checkNotNull(unit);
+    if (!isDone()) {
+      double at = Timers.now() + unit.toMillis(timeout);
+      // of several timeouts the earliest fires first, the others would find this future done
+      if (this.timeout == null || at < this.timeout.getDueAt()) {
+        if (this.timeout != null) {
+          this.timeout.cancel();
+        }
+        this.timeout = Timers.schedule(
+            () -> tryCompleteStage(null, new TimeoutException()), at - Timers.now());
+      }
+    }
+    return this;
+  }
+
+  /**
+   * Completes this future exceptionally with a {@link TimeoutException} if it is not completed
+   * within the given time, like {@link #orTimeout(long, TimeUnit)}, and hands the deadline down
+   * to the stages derived from this future. This is not part of the JDK API: those which would
+   * run after the deadline has passed complete exceptionally with a {@link TimeoutException}
+   * instead of running their function, and a {@code thenCompose} stage still waiting for its
+   * inner future at the deadline cancels that future, telling its source to abort. A stage which
+   * inherited an earlier deadline keeps that one.
+   *
+   * @return this future
+   */
+  public CompletableFuture<T> withDeadline(long timeout, TimeUnit unit) {
+    checkNotNull(unit);
+    if (!isDone()) {
+      double at = Timers.now() + unit.toMillis(timeout);
+      if (deadline == null || at < deadline.at) {
+        if (deadline != null && deadline.owner == this) {
+          deadline.timer.cancel();
+        }
+        deadline = expireAt(at, null);
+      } else if (deadline.owner != this) {
+        // the earlier deadline is inherited, its timer only completes the future it came from
+        deadline = expireAt(deadline.at, null);
+      }
+    }
+    return this;
+  }
+
+  /**
+   * Returns a deadline at {@code at} owned by this future, which completes it exceptionally then
+   * and cancels {@code source}, if any.
+   */
+  private Deadline expireAt(double at, CompletableFuture<?> source) {
+    Deadline expiry = new Deadline(at, this);
+    expiry.timer = Timers.schedule(() -> {
+      if (tryCompleteStage(null, new TimeoutException()) && source != null) {
+        source.cancel(false);
+      }
+    }, at - Timers.now());
+    return expiry;
+  }
+
+  /**
+   * Returns a new incomplete future, to be completed by a stage taking this one as input.
+   */
+  private <U> CompletableFuture<U> newStage() {
+    CompletableFuture<U> stage = new CompletableFuture<>();
+    stage.deadline = deadline;
+    return stage;
+  }
+
+  private static native boolean isThenable(Object value) /*-{
+    return value != null && typeof value.then === "function";
+  }-*/;
+
   @Override
   public CompletableFuture<T> toCompletableFuture() {
     return this;
@@ -543,21 +827,21 @@ public class CompletableFuture<T> implements Future<T>, CompletionStage<T> {
 
   @Override
   public boolean cancel(boolean mayInterruptIfRunning) {
-    return tryCompleteStage(null, new CancellationException());
+    return tryCompleteStage(null, Failures.cancellation());
   }
 
   @Override
   public boolean isCancelled() {
-    return reason instanceof CancellationException;
+    return reason() instanceof CancellationException;
   }
 
   @Override
   public boolean isDone() {
-    return done;
+    return result != null;
   }
 
   public boolean isCompletedExceptionally() {
-    return reason != null;
+    return result instanceof AltResult;
   }
 
   /**
@@ -568,12 +852,15 @@ public class CompletableFuture<T> implements Future<T>, CompletionStage<T> {
    */
   @Override
   public T get() throws InterruptedException, ExecutionException {
+    onDemand();
     if (!isDone()) {
       // TODO: according to GWT Future's javadoc
 //      throw new IllegalStateException("blocking on CompletableFuture is not supported");
       throw new InterruptedException("blocking on CompletableFuture is not supported");
     }
+    observe();
 
+    Throwable reason = reason();
     if (reason != null) {
       if (reason instanceof CancellationException) {
         throw (CancellationException) reason;
@@ -587,7 +874,7 @@ public class CompletableFuture<T> implements Future<T>, CompletionStage<T> {
       }
       throw new ExecutionException(cause);
     }
-    return value;
+    return value();
   }
 
   /**
@@ -618,30 +905,32 @@ public class CompletableFuture<T> implements Future<T>, CompletionStage<T> {
   }
 
   public T getNow(T valueIfAbsent) {
+    onDemand();
     return isDone() ? getJoinValue() : valueIfAbsent;
   }
 
   private T getJoinValue() {
+    observe();
+    Throwable reason = reason();
     if (reason == null) {
-      return value;
+      return value();
     }
 
     if (reason instanceof CancellationException) {
       throw (CancellationException) reason;
     }
-    if (reason instanceof CompletionException) {
-      throw (CompletionException) reason;
-    }
-    throw new CompletionException(reason);
+    throw Failures.wrap(reason);
   }
 
   /**
-   * This method is a simple stub which returns 0.
-   * It's done for simplicity because this method is designed to be used in monitoring systems
-   * and has no use in GWT.
+   * Returns the number of dependents waiting for this future to complete. A chain of fused
+   * synchronous stages counts as a single dependent of its first future.
    */
   public int getNumberOfDependents() {
-    return 0;
+    if (result != null || dependents == null) {
+      return 0;
+    }
+    return dependents instanceof List ? ((List<?>) dependents).size() : 1;
   }
 
   public boolean complete(T value) {
@@ -671,7 +960,7 @@ public class CompletableFuture<T> implements Future<T>, CompletionStage<T> {
   }
 
   private boolean tryCompleteStage(T value, Throwable reason) {
-    if (done) {
+    if (isDone()) {
       return false;
     }
 
@@ -680,28 +969,433 @@ public class CompletableFuture<T> implements Future<T>, CompletionStage<T> {
   }
 
   private void completeStage(T value, Throwable reason) {
-    this.value = value;
-    this.reason = reason;
-    done = true;
-    if (reason == null) {
-      promise.resolve(value);
+    result = reason != null ? new AltResult(reason) : value == null ? NIL : value;
+    if (deadline != null && deadline.owner == this) {
+      deadline.timer.cancel();
+    }
+    if (timeout != null) {
+      timeout.cancel();
+      timeout = null;
+    }
+    if (Registry.ENABLED && registration != null) {
+      Registry.unregister(registration);
+      registration = null;
+    }
+    if (Tracing.ENABLED && name != null) {
+      completedAt = Tracing.now();
+      Tracing.mark(name + " completed");
+    }
+    if (fused != null && !fused.running) {
+      // completed ahead of its fused chain, stages depending on it must not wait for the chain
+      fused.split(this);
+    }
+    if (dependents == null) {
+      if (reason != null) {
+        Unobserved.track(reason, this::unobservedFailure);
+      }
+    } else if (dependents != OBSERVED) {
+      if (Monitors.isInstalled()) {
+        dispatchMonitored();
+      } else {
+        Dispatcher.dispatch(this::runDependents);
+      }
+    }
+  }
+
+  /**
+   * Dispatches each dependent as a task of its own for the installed task monitor to time,
+   * labelled by the function of its stage. A fused chain is labelled by its first stage, a
+   * dependent handing the result to an executor is left to that executor.
+   */
+  @SuppressWarnings("unchecked")
+  private void dispatchMonitored() {
+    Object toRun = dependents;
+    dependents = OBSERVED;
+    Object value = value();
+    Throwable reason = reason();
+    List<BiConsumer<Object, Throwable>> list = toRun instanceof List
+        ? (List<BiConsumer<Object, Throwable>>) toRun
+        : Collections.singletonList((BiConsumer<Object, Throwable>) toRun);
+    for (BiConsumer<Object, Throwable> dependent : list) {
+      Runnable task = () -> dependent.accept(value, reason);
+      Object label = dependent instanceof Completion ? ((Completion) dependent).label
+          : dependent instanceof Fused ? ((Fused) dependent).label() : null;
+      Dispatcher.dispatch(label == null ? task : Monitors.wrap(Monitors.labelled(label, task)));
+    }
+  }
+
+  @SuppressWarnings("unchecked")
+  private T value() {
+    return result == NIL || result instanceof AltResult ? null : (T) result;
+  }
+
+  private Throwable reason() {
+    return result instanceof AltResult ? ((AltResult) result).ex : null;
+  }
+
+  /**
+   * Marks the result of this future as consumed, if it is completed. Only attaching a dependent
+   * and reading the result (get, join, getNow) consume it; queries such as
+   * {@link #isCompletedExceptionally()} do not.
+   */
+  private void observe() {
+    if (result != null && dependents == null) {
+      dependents = OBSERVED;
+    }
+  }
+
+  /**
+   * Adds a dependent to this incomplete future, purging the ones that can no longer complete
+   * anything: a single dead dependent is replaced, a list is swept each time it doubles in size.
+   */
+  @SuppressWarnings("unchecked")
+  private void addDependent(BiConsumer<Object, Throwable> dependent) {
+    if (dependents == null || isDead(dependents)) {
+      dependents = dependent;
+    } else if (dependents instanceof Dependents) {
+      Dependents list = (Dependents) dependents;
+      list.add(dependent);
+      if (list.size() >= list.sweepAt) {
+        list.removeIf(CompletableFuture::isDead);
+        list.sweepAt = Math.max(Dependents.MIN_SWEEP, list.size() * 2);
+      }
     } else {
-      promise.reject(reason);
+      Dependents list = new Dependents();
+      list.add((BiConsumer<Object, Throwable>) dependents);
+      list.add(dependent);
+      dependents = list;
     }
   }
 
-  private void onStageComplete(BiConsumer<? super T, ? super Throwable> action, Executor executor) {
-    if (done) {
-      runAsync(executor, action).accept(value, reason); // TODO
+  /**
+   * Whether {@code dependent} only completes futures which are already completed.
+   */
+  private static boolean isDead(Object dependent) {
+    if (dependent instanceof Completion) {
+      return ((Completion) dependent).dependent.isDone();
+    }
+    return dependent instanceof Fused && ((Fused) dependent).isDead();
+  }
+
+  @SuppressWarnings("unchecked")
+  private void runDependents() {
+    Object toRun = dependents;
+    dependents = OBSERVED;
+    Object value = value();
+    Throwable reason = reason();
+    if (toRun instanceof List) {
+      for (BiConsumer<Object, Throwable> dependent : (List<BiConsumer<Object, Throwable>>) toRun) {
+        try {
+          dependent.accept(value, reason);
+        } catch (Throwable t) {
+          Dispatcher.reportUncaught(t);
+        }
+      }
+    } else if (toRun != OBSERVED) {
+      ((BiConsumer<Object, Throwable>) toRun).accept(value, reason);
+    }
+  }
+
+  /**
+   * Returns the failure of this future if nothing consumed it, see {@link Unobserved}.
+   */
+  private Throwable unobservedFailure() {
+    return dependents == null ? reason() : null;
+  }
+
+  /**
+   * Registers {@code action}, which completes {@code dependent} synchronously. Such synchronous
+   * stages registered on an incomplete future are fused: the whole chain runs as a single
+   * callback of its first future.
+   */
+  private void onStageComplete(CompletableFuture<?> dependent,
+      BiConsumer<? super T, ? super Throwable> action, Executor executor, Object source) {
+
+    onStageComplete(dependent, true, action, executor, source);
+  }
+
+  /**
+   * Registers an internal {@code action}, see below.
+   */
+  private void onStageComplete(CompletableFuture<?> dependent, boolean fuse,
+      BiConsumer<? super T, ? super Throwable> action, Executor executor) {
+
+    onStageComplete(dependent, fuse, action, executor, action);
+  }
+
+  /**
+   * Registers {@code action}, which completes {@code dependent}. The action is skipped, and
+   * eventually purged from this future, once {@code dependent} is completed some other way.
+   *
+   * @param fuse whether the action completes {@code dependent} synchronously, see above
+   * @param source the function given by the caller, whose class labels the task running
+   *     {@code action} for a {@link Monitors task monitor} unless this future is named
+   */
+  @SuppressWarnings("unchecked")
+  private void onStageComplete(CompletableFuture<?> dependent, boolean fuse,
+      BiConsumer<? super T, ? super Throwable> action, Executor executor, Object source) {
+
+    onDemand();
+    if (dependent.deadline != null) {
+      action = expiring(dependent, action);
+    }
+    if (Tracing.ENABLED && name != null) {
+      action = traced(action);
+    }
+    // runs in the context it was registered in, on any executor
+    action = Contexts.wrap(action);
+    Object label = Tracing.ENABLED && name != null ? name : source;
+    if (isDone()) {
+      observe();
+      runAsync(executor, action, label).accept(value(), reason());
+    } else if (executor != null || !fuse) {
+      // an asynchronous action is labelled by the task executing it, see runAsync
+      addDependent(new Completion(dependent,
+          (BiConsumer<Object, Throwable>) runAsync(executor, action, label),
+          executor == null ? label : null));
+    } else if (fused != null && fused.tail == this) {
+      fused.add(this, (BiConsumer<Object, Throwable>) action, dependent, label);
     } else {
-      promise.then(runAsync(executor, action));
+      Fused chain = new Fused();
+      chain.add(this, (BiConsumer<Object, Throwable>) action, dependent, label);
+      addDependent(chain);
     }
   }
 
-  private static RuntimeException wrap(Throwable t) {
-    if (t instanceof CompletionException) {
-      return (CompletionException) t;
+  /**
+   * Wraps {@code action} so that it completes {@code dependent} with a {@link TimeoutException}
+   * instead of running if the deadline of {@code dependent} has passed by then. Failures are
+   * still handed to {@code action}.
+   */
+  @SuppressWarnings("unchecked")
+  private static <T> BiConsumer<? super T, ? super Throwable> expiring(
+      CompletableFuture<?> dependent, BiConsumer<? super T, ? super Throwable> action) {
+
+    double at = dependent.deadline.at;
+    return (r, e) -> {
+      if (e == null && Timers.now() >= at) {
+        ((CompletableFuture<Object>) dependent).tryCompleteThrowable(new TimeoutException());
+      } else {
+        action.accept(r, e);
+      }
+    };
+  }
+
+  /**
+   * Wraps {@code action}, a callback of this named future, to measure its wait and duration.
+   */
+  private BiConsumer<? super T, ? super Throwable> traced(
+      BiConsumer<? super T, ? super Throwable> action) {
+
+    String name = this.name;
+    return (r, e) -> {
+      double startedAt = Tracing.now();
+      Tracing.measure(name + " callback wait", completedAt, startedAt);
+      try {
+        action.accept(r, e);
+      } finally {
+        Tracing.measure(name + " callback", startedAt, Tracing.now());
+      }
+    };
+  }
+
+  /**
+   * Called whenever the result of this future is consumed, see {@link #supplyLazy(Supplier)}.
+   */
+  void onDemand() {
+  }
+
+  /**
+   * A chain of synchronous stages, each taking the future completed by the previous one as input,
+   * run in one go once the input of the first stage completes.
+   */
+  private static final class Fused implements BiConsumer<Object, Throwable> {
+    private Stage head;
+    private Stage last;
+    private CompletableFuture<?> tail;
+    private boolean running;
+
+    void add(CompletableFuture<?> input, BiConsumer<Object, Throwable> action,
+        CompletableFuture<?> dependent, Object label) {
+
+      Stage stage = new Stage(input, action, label);
+      if (last == null) {
+        head = stage;
+      } else {
+        last.next = stage;
+      }
+      last = stage;
+      tail = dependent;
+      dependent.fused = this;
+    }
+
+    @SuppressWarnings("unchecked")
+    @Override
+    public void accept(Object ignoredValue, Throwable ignoredReason) {
+      running = true;
+      // stages added while running are appended and picked up by this loop
+      for (Stage stage = head; stage != null; stage = stage.next) {
+        CompletableFuture<Object> input = (CompletableFuture<Object>) stage.input;
+        if (input.fused == this) {
+          input.fused = null;
+        }
+        input.observe();
+        if (!stage.output(this).isDone()) {
+          stage.action.accept(input.value(), input.reason());
+        }
+      }
+      if (tail.fused == this) {
+        tail.fused = null;
+      }
+      head = null;
+      last = null;
+    }
+
+    Object label() {
+      return head == null ? null : head.label;
+    }
+
+    /**
+     * Whether the output of every stage is already completed.
+     */
+    boolean isDead() {
+      for (Stage stage = head; stage != null; stage = stage.next) {
+        if (!stage.output(this).isDone()) {
+          return false;
+        }
+      }
+      return true;
+    }
+
+    /**
+     * Moves the stages from the one taking {@code input} onwards into a chain of their own, run
+     * once {@code input} completes.
+     */
+    void split(CompletableFuture<?> input) {
+      Stage previous = null;
+      for (Stage stage = head; stage != null; previous = stage, stage = stage.next) {
+        if (stage.input == input) {
+          if (previous == null) {
+            // input is the input of the whole chain, which already runs once it completes
+            input.fused = null;
+            return;
+          }
+          Fused rest = new Fused();
+          rest.head = stage;
+          rest.last = last;
+          rest.tail = tail;
+          for (Stage moved = stage; moved != null; moved = moved.next) {
+            if (moved.input.fused == this) {
+              moved.input.fused = rest;
+            }
+          }
+          if (tail.fused == this) {
+            tail.fused = rest;
+          }
+          previous.next = null;
+          last = previous;
+          tail = input;
+          // rest is a dependent of input from now on, input is no longer part of a pending chain
+          input.fused = null;
+          input.addDependent(rest);
+          return;
+        }
+      }
+      // input is the tail, nothing depends on it yet
+      input.fused = null;
+    }
+  }
+
+  /**
+   * A deadline, shared by the future which set it and the stages derived from that future.
+   */
+  private static final class Deadline {
+    final double at;
+    /**
+     * The future the {@link #timer} completes.
+     */
+    final CompletableFuture<?> owner;
+    Timers.Timeout timer;
+
+    Deadline(double at, CompletableFuture<?> owner) {
+      this.at = at;
+      this.owner = owner;
+    }
+  }
+
+  /**
+   * The result of a failed future.
+   */
+  private static final class AltResult {
+    final Throwable ex;
+
+    AltResult(Throwable ex) {
+      this.ex = ex;
+    }
+  }
+
+  private static final class Stage {
+    final CompletableFuture<?> input;
+    final BiConsumer<Object, Throwable> action;
+    /**
+     * The label of the stage for a task monitor, see {@link Monitors#labelled}.
+     */
+    final Object label;
+    Stage next;
+
+    Stage(CompletableFuture<?> input, BiConsumer<Object, Throwable> action, Object label) {
+      this.input = input;
+      this.action = action;
+      this.label = label;
+    }
+
+    /**
+     * The future this stage completes, the input of the next stage or the tail of the chain.
+     */
+    CompletableFuture<?> output(Fused chain) {
+      return next != null ? next.input : chain.tail;
+    }
+  }
+
+  /**
+   * A dependent which is not part of a fused chain.
+   */
+  private static final class Completion implements BiConsumer<Object, Throwable> {
+    final CompletableFuture<?> dependent;
+    final BiConsumer<Object, Throwable> action;
+    /**
+     * The label of a synchronous action for a task monitor, see {@link Monitors#labelled}; null
+     * if the action only hands the result to an executor.
+     */
+    final Object label;
+
+    Completion(CompletableFuture<?> dependent, BiConsumer<Object, Throwable> action, Object label) {
+      this.dependent = dependent;
+      this.action = action;
+      this.label = label;
+    }
+
+    @Override
+    public void accept(Object value, Throwable reason) {
+      if (!dependent.isDone()) {
+        action.accept(value, reason);
+      }
     }
-    return new CompletionException(t);
+  }
+
+  /**
+   * Two or more dependents of an incomplete future.
+   */
+  private static final class Dependents extends ArrayList<BiConsumer<Object, Throwable>> {
+    static final int MIN_SWEEP = 8;
+
+    /**
+     * Size at which dead dependents are next swept out.
+     */
+    int sweepAt = MIN_SWEEP;
+  }
+
+  private static RuntimeException wrap(Throwable t) {
+    return Failures.wrap(t);
   }
 }
@@ -0,0 +1,57 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package java.util.concurrent;
+
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Emulation of ExecutorService. Since GWT environment is single threaded, no method blocks:
+ * {@link #awaitTermination(long, TimeUnit)} returns whether the service has terminated already,
+ * {@link #invokeAll(Collection)} returns futures which complete once the tasks have run and
+ * {@link #invokeAny(Collection)} runs the tasks inline, see {@link AbstractExecutorService}.
+ * See
+ * <a href="https://docs.oracle.com/javase/8/docs/api/java/util/concurrent/ExecutorService.html">
+ * the official Java API doc</a> for details.
+ */
+public interface ExecutorService extends Executor {
+
+  void shutdown();
+
+  List<Runnable> shutdownNow();
+
+  boolean isShutdown();
+
+  boolean isTerminated();
+
+  boolean awaitTermination(long timeout, TimeUnit unit) throws InterruptedException;
+
+  <T> Future<T> submit(Callable<T> task);
+
+  <T> Future<T> submit(Runnable task, T result);
+
+  Future<?> submit(Runnable task);
+
+  <T> List<Future<T>> invokeAll(Collection<? extends Callable<T>> tasks)
+      throws InterruptedException;
+
+  <T> List<Future<T>> invokeAll(Collection<? extends Callable<T>> tasks, long timeout,
+      TimeUnit unit) throws InterruptedException;
+
+  <T> T invokeAny(Collection<? extends Callable<T>> tasks)
+      throws InterruptedException, ExecutionException;
+
+  <T> T invokeAny(Collection<? extends Callable<T>> tasks, long timeout, TimeUnit unit)
+      throws InterruptedException, ExecutionException, TimeoutException;
+}
@@ -15,6 +15,9 @@
  */
 package java.util.concurrent;
 
+import java.util.concurrent.impl.DeferredExecutorService;
+
+import static javaemul.internal.InternalPreconditions.checkArgument;
 import static javaemul.internal.InternalPreconditions.checkNotNull;
 
 /**
@@ -22,6 +25,29 @@ import static javaemul.internal.InternalPreconditions.checkNotNull;
  */
 public class Executors {
 
+  /**
+   * Returns an executor service which runs the commands submitted in a turn of the event loop
+   * as a single deferred batch, see {@link DeferredExecutorService}.
+   */
+  public static ExecutorService newSingleThreadExecutor() {
+    return new DeferredExecutorService();
+  }
+
+  /**
+   * Same as {@link #newSingleThreadExecutor()}; the number of threads is ignored.
+   */
+  public static ExecutorService newFixedThreadPool(int nThreads) {
+    checkArgument(nThreads > 0);
+    return newSingleThreadExecutor();
+  }
+
+  /**
+   * Same as {@link #newSingleThreadExecutor()}.
+   */
+  public static ExecutorService newCachedThreadPool() {
+    return newSingleThreadExecutor();
+  }
+
   public static <T> Callable<T> callable(Runnable task, T result) {
     return new RunnableAdapter<>(task, result);
   }
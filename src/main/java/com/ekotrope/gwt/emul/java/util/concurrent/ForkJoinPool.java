@@ -0,0 +1,222 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package java.util.concurrent;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.impl.Contexts;
+import java.util.concurrent.impl.Dispatcher;
+import java.util.concurrent.impl.Monitors;
+import java.util.concurrent.impl.Timers;
+
+import static javaemul.internal.InternalPreconditions.checkArgument;
+import static javaemul.internal.InternalPreconditions.checkNotNull;
+
+/**
+ * Emulation of ForkJoinPool as a cooperative scheduler. Queued tasks run in FIFO order from a
+ * deferred task until a time slice of 8ms is used up; the rest then waits for
+ * the next turn of the event loop, letting the browser render and handle input in between.
+ * Forked tasks are mostly taken back and run inline by {@link ForkJoinTask#join()}, so the queue
+ * stays shallow.
+ * <p>
+ * The parallelism is always 1. The {@link #commonPool() common pool} ignores {@link #shutdown()}
+ * and {@link #shutdownNow()}.
+ * See
+ * <a href="https://docs.oracle.com/javase/8/docs/api/java/util/concurrent/ForkJoinPool.html">
+ * the official Java API doc</a> for details.
+ */
+public class ForkJoinPool extends AbstractExecutorService {
+
+  private static final double SLICE_MILLIS = 8;
+
+  private static final ForkJoinPool common = new ForkJoinPool();
+
+  /**
+   * The pool whose queue is being drained, if any.
+   */
+  private static ForkJoinPool current;
+
+  private final ArrayDeque<ForkJoinTask<?>> queue = new ArrayDeque<>();
+  private boolean drainScheduled;
+  private boolean draining;
+  private boolean shutdown;
+
+  public ForkJoinPool() {
+  }
+
+  /**
+   * The parallelism is ignored, see {@link ForkJoinPool}.
+   */
+  public ForkJoinPool(int parallelism) {
+    checkArgument(parallelism > 0);
+  }
+
+  public static ForkJoinPool commonPool() {
+    return common;
+  }
+
+  public static int getCommonPoolParallelism() {
+    return 1;
+  }
+
+  public int getParallelism() {
+    return 1;
+  }
+
+  /**
+   * Runs {@code task} inline and returns its result, see {@link ForkJoinTask#invoke()}.
+   */
+  public <T> T invoke(ForkJoinTask<T> task) {
+    checkNotShutdown();
+    return checkNotNull(task).invoke();
+  }
+
+  public void execute(ForkJoinTask<?> task) {
+    push(checkNotNull(task));
+  }
+
+  @Override
+  public void execute(Runnable task) {
+    push(task instanceof ForkJoinTask
+        ? (ForkJoinTask<?>) task : ForkJoinTask.adaptCommand(Monitors.wrap(task)));
+  }
+
+  public <T> ForkJoinTask<T> submit(ForkJoinTask<T> task) {
+    push(checkNotNull(task));
+    return task;
+  }
+
+  @Override
+  public <T> ForkJoinTask<T> submit(Callable<T> task) {
+    return submit(ForkJoinTask.adapt(task));
+  }
+
+  @Override
+  public <T> ForkJoinTask<T> submit(Runnable task, T result) {
+    return submit(ForkJoinTask.adapt(task, result));
+  }
+
+  @Override
+  public ForkJoinTask<?> submit(Runnable task) {
+    return submit(ForkJoinTask.adapt(task));
+  }
+
+  public int getQueuedTaskCount() {
+    return queue.size();
+  }
+
+  public boolean hasQueuedSubmissions() {
+    return !queue.isEmpty();
+  }
+
+  public boolean isQuiescent() {
+    return !draining && queue.isEmpty();
+  }
+
+  @Override
+  public void shutdown() {
+    if (this != common) {
+      shutdown = true;
+    }
+  }
+
+  /**
+   * Also cancels the queued tasks. As in the JDK, the returned list is always empty.
+   */
+  @Override
+  public List<Runnable> shutdownNow() {
+    if (this != common) {
+      shutdown = true;
+      for (ForkJoinTask<?> task : queue) {
+        task.cancel(false);
+      }
+      queue.clear();
+    }
+    return new ArrayList<>();
+  }
+
+  @Override
+  public boolean isShutdown() {
+    return shutdown;
+  }
+
+  @Override
+  public boolean isTerminated() {
+    return shutdown && isQuiescent();
+  }
+
+  /**
+   * Cannot wait in a single thread: returns whether the pool has terminated already.
+   */
+  @Override
+  public boolean awaitTermination(long timeout, TimeUnit unit) {
+    return isTerminated();
+  }
+
+  static ForkJoinPool current() {
+    return current;
+  }
+
+  void push(ForkJoinTask<?> task) {
+    checkNotShutdown();
+    task.pool = this;
+    task.context = Contexts.capture();
+    queue.addLast(task);
+    if (!drainScheduled) {
+      drainScheduled = true;
+      Dispatcher.dispatch(this::drain);
+    }
+  }
+
+  /**
+   * Removes {@code task} if it is the last task queued.
+   */
+  boolean unpush(ForkJoinTask<?> task) {
+    if (queue.peekLast() != task) {
+      // still queued elsewhere, it is skipped once it has run
+      return false;
+    }
+    queue.pollLast();
+    return true;
+  }
+
+  private void drain() {
+    drainScheduled = false;
+    double sliceEnd = Timers.now() + SLICE_MILLIS;
+    ForkJoinPool previous = current;
+    current = this;
+    draining = true;
+    try {
+      ForkJoinTask<?> task;
+      while ((task = queue.pollFirst()) != null) {
+        task.doExec();
+        if (!queue.isEmpty() && Timers.now() >= sliceEnd) {
+          drainScheduled = true;
+          Dispatcher.afterTurn(this::drain);
+          return;
+        }
+      }
+    } finally {
+      draining = false;
+      current = previous;
+    }
+  }
+
+  private void checkNotShutdown() {
+    if (shutdown) {
+      throw new RejectedExecutionException("pool has been shut down");
+    }
+  }
+}
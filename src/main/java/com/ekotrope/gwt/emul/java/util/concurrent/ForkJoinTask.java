@@ -0,0 +1,307 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package java.util.concurrent;
+
+import java.util.Collection;
+import java.util.concurrent.impl.Contexts;
+import java.util.concurrent.impl.Dispatcher;
+
+import static javaemul.internal.InternalPreconditions.checkNotNull;
+
+/**
+ * Emulation of ForkJoinTask. {@link #fork()} queues the task on a {@link ForkJoinPool};
+ * {@link #join()} on a task which has not started yet runs it inline instead of waiting, taking
+ * it back from the pool if it is still queued, so divide-and-conquer code runs depth first in a
+ * single thread. Joining a task which is running, or which completes only through
+ * {@link #complete(Object)}, throws {@link IllegalStateException} since nothing can block.
+ * See
+ * <a href="https://docs.oracle.com/javase/8/docs/api/java/util/concurrent/ForkJoinTask.html">
+ * the official Java API doc</a> for details.
+ */
+public abstract class ForkJoinTask<V> implements Future<V> {
+
+  private static final int NEW = 0;
+  private static final int RUNNING = 1;
+  private static final int NORMAL = 2;
+  private static final int EXCEPTIONAL = 3;
+  private static final int CANCELLED = 4;
+
+  private int status = NEW;
+  private Throwable exception;
+
+  /**
+   * The pool the task was queued on, and the context it was forked in; cleared when it runs.
+   */
+  ForkJoinPool pool;
+  Object context;
+
+  public abstract V getRawResult();
+
+  protected abstract void setRawResult(V value);
+
+  /**
+   * Runs the task.
+   *
+   * @return {@code true} if the task completed normally
+   */
+  protected abstract boolean exec();
+
+  /**
+   * Queues this task on the pool running the current task, or on the common pool.
+   *
+   * @return this task
+   */
+  public final ForkJoinTask<V> fork() {
+    ForkJoinPool pool = ForkJoinPool.current();
+    (pool != null ? pool : ForkJoinPool.commonPool()).push(this);
+    return this;
+  }
+
+  public final V join() {
+    if (status == NEW) {
+      tryUnfork();
+      doExec();
+    }
+    return reportResult();
+  }
+
+  public final V invoke() {
+    doExec();
+    return reportResult();
+  }
+
+  public final void quietlyJoin() {
+    if (status == NEW) {
+      tryUnfork();
+      doExec();
+    }
+  }
+
+  public final void quietlyInvoke() {
+    doExec();
+  }
+
+  /**
+   * Takes this task back from the pool it was forked to, if it is the last one queued there.
+   */
+  public boolean tryUnfork() {
+    return pool != null && pool.unpush(this);
+  }
+
+  /**
+   * Forks {@code t2}, runs {@code t1} and joins {@code t2}: both run inline.
+   */
+  public static void invokeAll(ForkJoinTask<?> t1, ForkJoinTask<?> t2) {
+    t2.fork();
+    t1.invoke();
+    t2.join();
+  }
+
+  public static void invokeAll(ForkJoinTask<?>... tasks) {
+    for (int i = tasks.length - 1; i > 0; i--) {
+      tasks[i].fork();
+    }
+    if (tasks.length > 0) {
+      tasks[0].invoke();
+    }
+    for (int i = 1; i < tasks.length; i++) {
+      tasks[i].join();
+    }
+  }
+
+  public static <T extends ForkJoinTask<?>> Collection<T> invokeAll(Collection<T> tasks) {
+    invokeAll(tasks.toArray(new ForkJoinTask<?>[tasks.size()]));
+    return tasks;
+  }
+
+  @Override
+  public boolean cancel(boolean mayInterruptIfRunning) {
+    if (status != NEW) {
+      return status == CANCELLED;
+    }
+    finish(CANCELLED, new CancellationException());
+    return true;
+  }
+
+  @Override
+  public final boolean isDone() {
+    return status > RUNNING;
+  }
+
+  @Override
+  public final boolean isCancelled() {
+    return status == CANCELLED;
+  }
+
+  public final boolean isCompletedAbnormally() {
+    return status > NORMAL;
+  }
+
+  public final boolean isCompletedNormally() {
+    return status == NORMAL;
+  }
+
+  public final Throwable getException() {
+    return exception;
+  }
+
+  public void complete(V value) {
+    setRawResult(value);
+    finish(NORMAL, null);
+  }
+
+  public void completeExceptionally(Throwable ex) {
+    finish(EXCEPTIONAL, checkNotNull(ex));
+  }
+
+  /**
+   * Runs the task inline if it has not started yet, see {@link #join()}.
+   */
+  @Override
+  public final V get() throws InterruptedException, ExecutionException {
+    quietlyJoin();
+    if (status == EXCEPTIONAL) {
+      throw new ExecutionException(exception);
+    }
+    return reportResult();
+  }
+
+  /**
+   * Timeout parameters are ignored, see {@link #get()}.
+   */
+  @Override
+  public final V get(long timeout, TimeUnit unit)
+      throws InterruptedException, ExecutionException, TimeoutException {
+    return get();
+  }
+
+  public static ForkJoinTask<?> adapt(Runnable runnable) {
+    return adapt(Executors.callable(runnable));
+  }
+
+  public static <T> ForkJoinTask<T> adapt(Runnable runnable, T result) {
+    return adapt(Executors.callable(runnable, result));
+  }
+
+  public static <T> ForkJoinTask<T> adapt(Callable<? extends T> callable) {
+    checkNotNull(callable);
+    return new ForkJoinTask<T>() {
+      private T result;
+
+      @Override
+      public T getRawResult() {
+        return result;
+      }
+
+      @Override
+      protected void setRawResult(T value) {
+        result = value;
+      }
+
+      @Override
+      protected boolean exec() {
+        try {
+          result = callable.call();
+        } catch (RuntimeException e) {
+          throw e;
+        } catch (Exception e) {
+          throw new RuntimeException(e);
+        }
+        return true;
+      }
+    };
+  }
+
+  /**
+   * Adapts a command given to {@link ForkJoinPool#execute(Runnable)}, whose failure is reported
+   * as uncaught since no one can join it.
+   */
+  static ForkJoinTask<?> adaptCommand(Runnable command) {
+    checkNotNull(command);
+    return new ForkJoinTask<Void>() {
+      @Override
+      public Void getRawResult() {
+        return null;
+      }
+
+      @Override
+      protected void setRawResult(Void value) {
+      }
+
+      @Override
+      protected boolean exec() {
+        try {
+          command.run();
+        } catch (Throwable t) {
+          Dispatcher.reportUncaught(t);
+        }
+        return true;
+      }
+    };
+  }
+
+  /**
+   * Runs the task unless it has started already, in the context it was forked in.
+   */
+  final void doExec() {
+    if (status != NEW) {
+      return;
+    }
+    status = RUNNING;
+    pool = null;
+    Object previous = Contexts.swap(context != null ? context : Contexts.capture());
+    context = null;
+    boolean completed;
+    try {
+      completed = exec();
+    } catch (Throwable t) {
+      finish(EXCEPTIONAL, t);
+      return;
+    } finally {
+      Contexts.swap(previous);
+    }
+    if (completed) {
+      finish(NORMAL, null);
+    }
+  }
+
+  private void finish(int finalStatus, Throwable ex) {
+    if (status > RUNNING) {
+      return;
+    }
+    status = finalStatus;
+    exception = ex;
+    pool = null;
+    context = null;
+  }
+
+  private V reportResult() {
+    switch (status) {
+      case NORMAL:
+        return getRawResult();
+      case CANCELLED:
+        throw (CancellationException) exception;
+      case EXCEPTIONAL:
+        if (exception instanceof RuntimeException) {
+          throw (RuntimeException) exception;
+        }
+        if (exception instanceof Error) {
+          throw (Error) exception;
+        }
+        throw new RuntimeException(exception);
+      default:
+        throw new IllegalStateException("blocking on ForkJoinTask is not supported");
+    }
+  }
+}
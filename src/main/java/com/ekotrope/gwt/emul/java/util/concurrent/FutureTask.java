@@ -0,0 +1,152 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package java.util.concurrent;
+
+import static javaemul.internal.InternalPreconditions.checkNotNull;
+
+/**
+ * Emulation of FutureTask. As required by {@link Future}, {@link #get()} throws
+ * {@link IllegalStateException} if the task has not run yet instead of blocking.
+ * See
+ * <a href="https://docs.oracle.com/javase/8/docs/api/java/util/concurrent/FutureTask.html">
+ * the official Java API doc</a> for details.
+ */
+public class FutureTask<V> implements RunnableFuture<V> {
+
+  private static final int NEW = 0;
+  private static final int RUNNING = 1;
+  private static final int NORMAL = 2;
+  private static final int EXCEPTIONAL = 3;
+  private static final int CANCELLED = 4;
+
+  private Callable<V> callable;
+  private int state = NEW;
+  private V value;
+  private Throwable exception;
+
+  public FutureTask(Callable<V> callable) {
+    this.callable = checkNotNull(callable);
+  }
+
+  public FutureTask(Runnable runnable, V result) {
+    this.callable = Executors.callable(runnable, result);
+  }
+
+  @Override
+  public void run() {
+    if (state != NEW) {
+      return;
+    }
+    state = RUNNING;
+    V result;
+    try {
+      result = callable.call();
+    } catch (Throwable t) {
+      setException(t);
+      return;
+    }
+    set(result);
+  }
+
+  /**
+   * Runs the task without setting its result, so that it can run again.
+   *
+   * @return {@code true} if the task ran and succeeded
+   */
+  protected boolean runAndReset() {
+    if (state != NEW) {
+      return false;
+    }
+    state = RUNNING;
+    try {
+      callable.call();
+    } catch (Throwable t) {
+      setException(t);
+      return false;
+    }
+    if (state == RUNNING) {
+      state = NEW;
+    }
+    return state == NEW;
+  }
+
+  protected void set(V v) {
+    if (state == NEW || state == RUNNING) {
+      value = v;
+      finish(NORMAL);
+    }
+  }
+
+  protected void setException(Throwable t) {
+    if (state == NEW || state == RUNNING) {
+      exception = checkNotNull(t);
+      finish(EXCEPTIONAL);
+    }
+  }
+
+  /**
+   * Called once the task has completed, normally, exceptionally or by cancellation.
+   */
+  protected void done() {
+  }
+
+  @Override
+  public boolean cancel(boolean mayInterruptIfRunning) {
+    // a running task cannot be interrupted in a single thread, but its result is discarded
+    if (state != NEW && state != RUNNING) {
+      return false;
+    }
+    finish(CANCELLED);
+    return true;
+  }
+
+  @Override
+  public boolean isCancelled() {
+    return state == CANCELLED;
+  }
+
+  @Override
+  public boolean isDone() {
+    return state > RUNNING;
+  }
+
+  @Override
+  public V get() throws InterruptedException, ExecutionException {
+    switch (state) {
+      case NORMAL:
+        return value;
+      case EXCEPTIONAL:
+        throw new ExecutionException(exception);
+      case CANCELLED:
+        throw new CancellationException();
+      default:
+        throw new IllegalStateException("blocking on FutureTask is not supported");
+    }
+  }
+
+  /**
+   * Timeout parameters are ignored, see {@link #get()}.
+   */
+  @Override
+  public V get(long timeout, TimeUnit unit)
+      throws InterruptedException, ExecutionException, TimeoutException {
+    return get();
+  }
+
+  private void finish(int finalState) {
+    state = finalState;
+    callable = null;
+    done();
+  }
+}
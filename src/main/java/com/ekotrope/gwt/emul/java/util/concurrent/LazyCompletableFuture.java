@@ -0,0 +1,58 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package java.util.concurrent;
+
+import java.util.concurrent.impl.Contexts;
+import java.util.concurrent.impl.Failures;
+import java.util.function.Supplier;
+
+/**
+ * Future returned by {@link CompletableFuture#supplyLazy(Supplier, Executor)}, which schedules
+ * its supplier on first demand.
+ */
+final class LazyCompletableFuture<T> extends CompletableFuture<T> {
+
+  /**
+   * Runs the supplier, in the context supplyLazy was called in; {@code null} once scheduled.
+   */
+  private Runnable task;
+  private Executor executor;
+
+  LazyCompletableFuture(Supplier<T> supplier, Executor executor) {
+    this.task = Contexts.wrap(() -> {
+      try {
+        complete(supplier.get());
+      } catch (Throwable t) {
+        completeExceptionally(Failures.wrap(t));
+      }
+    });
+    this.executor = executor;
+  }
+
+  @Override
+  void onDemand() {
+    Runnable task = this.task;
+    if (task == null) {
+      return;
+    }
+    Executor executor = this.executor;
+    this.task = null;
+    this.executor = null;
+    if (isDone()) {
+      // completed or cancelled before anyone asked for the result
+      return;
+    }
+    executor.execute(task);
+  }
+}
@@ -13,19 +13,27 @@
  * License for the specific language governing permissions and limitations under
  * the License.
  */
-package java.util.concurrent.impl;
+package java.util.concurrent;
 
 /**
- *
+ * Emulation of RecursiveAction, see {@link ForkJoinTask}.
  */
-public interface Promises {
-
-  Promise<Void> allOf(Promise[] promises);
+public abstract class RecursiveAction extends ForkJoinTask<Void> {
 
-  Promise<Object> anyOf(Promise[] promises);
+  protected abstract void compute();
 
-  <V> Promise<V> completed(V value);
+  @Override
+  public final Void getRawResult() {
+    return null;
+  }
 
-  <V> Promise<V> incomplete();
+  @Override
+  protected final void setRawResult(Void value) {
+  }
 
+  @Override
+  protected final boolean exec() {
+    compute();
+    return true;
+  }
 }
@@ -13,20 +13,30 @@
  * License for the specific language governing permissions and limitations under
  * the License.
  */
-package java.util.concurrent.impl;
-
-import java.util.function.BiConsumer;
+package java.util.concurrent;
 
 /**
- *
+ * Emulation of RecursiveTask, see {@link ForkJoinTask}.
  */
-public interface Promise<V> {
+public abstract class RecursiveTask<V> extends ForkJoinTask<V> {
+
+  private V result;
 
-  void resolve(V value);
+  protected abstract V compute();
 
-  void reject(Throwable reason);
+  @Override
+  public final V getRawResult() {
+    return result;
+  }
 
-  void then(BiConsumer<? super V, ? super Throwable> callback);
+  @Override
+  protected final void setRawResult(V value) {
+    result = value;
+  }
 
-  void then(Runnable callback);
+  @Override
+  protected final boolean exec() {
+    result = compute();
+    return true;
+  }
 }
@@ -0,0 +1,105 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package java.util.concurrent.impl;
+
+import java.util.function.BiConsumer;
+
+/**
+ * The ambient context: values bound to keys, captured when a callback is registered and restored
+ * around it, whichever executor runs it. A context is an immutable chain of bindings, so capturing
+ * it is a field read, and when no context is set wrapping a callback returns it as is.
+ */
+public final class Contexts {
+
+  private static Binding current;
+
+  /**
+   * Returns the current context, {@code null} if no value is bound.
+   */
+  public static Object capture() {
+    return current;
+  }
+
+  /**
+   * Makes {@code context} current and returns the previous one, to be restored with another call.
+   */
+  public static Object swap(Object context) {
+    Object previous = current;
+    current = (Binding) context;
+    return previous;
+  }
+
+  /**
+   * Returns the current context with {@code key} bound to {@code value}.
+   */
+  public static Object with(Object key, Object value) {
+    return new Binding(key, value, current);
+  }
+
+  /**
+   * Returns the value bound to {@code key} in the current context.
+   */
+  public static Object get(Object key) {
+    for (Binding binding = current; binding != null; binding = binding.parent) {
+      if (binding.key == key) {
+        return binding.value;
+      }
+    }
+    return null;
+  }
+
+  public static Runnable wrap(Runnable task) {
+    Binding context = current;
+    if (context == null) {
+      return task;
+    }
+    return () -> {
+      Object previous = swap(context);
+      try {
+        task.run();
+      } finally {
+        swap(previous);
+      }
+    };
+  }
+
+  public static <T, U> BiConsumer<T, U> wrap(BiConsumer<T, U> action) {
+    Binding context = current;
+    if (context == null) {
+      return action;
+    }
+    return (t, u) -> {
+      Object previous = swap(context);
+      try {
+        action.accept(t, u);
+      } finally {
+        swap(previous);
+      }
+    };
+  }
+
+  private static final class Binding {
+    final Object key;
+    final Object value;
+    final Binding parent;
+
+    Binding(Object key, Object value, Binding parent) {
+      this.key = key;
+      this.value = value;
+      this.parent = parent;
+    }
+  }
+
+  private Contexts() { }
+}
@@ -21,10 +21,9 @@ import java.util.concurrent.Executor;
  *
  */
 public final class DeferredExecutor implements Executor {
-  private final Promise<Void> resolvedPromise = Impl.IMPL.completed(null);
 
   @Override
   public void execute(Runnable command) {
-    resolvedPromise.then(command);
+    Dispatcher.dispatch(Contexts.wrap(Monitors.wrap(command)));
   }
 }
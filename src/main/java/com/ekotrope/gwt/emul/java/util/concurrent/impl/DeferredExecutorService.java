@@ -0,0 +1,130 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package java.util.concurrent.impl;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.AbstractExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import static javaemul.internal.InternalPreconditions.checkNotNull;
+
+/**
+ * Executor service which queues its commands and runs every command queued in a turn from a
+ * single {@link Dispatcher} task. Commands queued while a batch runs go to the next batch.
+ * <p>
+ * After {@link #shutdown()} no command is accepted but the queued ones still run;
+ * {@link #shutdownNow()} also drops the queued commands, including those left in the running
+ * batch, cancels those which are {@link Future}s so that nobody waits for them, and returns them.
+ */
+public final class DeferredExecutorService extends AbstractExecutorService {
+
+  private List<Queued> queue = new ArrayList<>();
+  private List<Queued> batch;
+  private int next;
+  private boolean drainScheduled;
+  private boolean shutdown;
+
+  @Override
+  public void execute(Runnable command) {
+    checkNotNull(command);
+    if (shutdown) {
+      throw new RejectedExecutionException("executor has been shut down");
+    }
+    queue.add(new Queued(command, Contexts.wrap(Monitors.wrap(command))));
+    if (!drainScheduled) {
+      drainScheduled = true;
+      Dispatcher.dispatch(this::drain);
+    }
+  }
+
+  @Override
+  public void shutdown() {
+    shutdown = true;
+  }
+
+  @Override
+  public List<Runnable> shutdownNow() {
+    shutdown = true;
+    List<Runnable> dropped = new ArrayList<>();
+    if (batch != null) {
+      for (Queued queued : batch.subList(next, batch.size())) {
+        dropped.add(queued.command);
+      }
+      batch.clear();
+    }
+    for (Queued queued : queue) {
+      dropped.add(queued.command);
+    }
+    queue.clear();
+    for (Runnable command : dropped) {
+      if (command instanceof Future) {
+        ((Future<?>) command).cancel(false);
+      }
+    }
+    return dropped;
+  }
+
+  @Override
+  public boolean isShutdown() {
+    return shutdown;
+  }
+
+  @Override
+  public boolean isTerminated() {
+    return shutdown && batch == null && queue.isEmpty();
+  }
+
+  /**
+   * Cannot wait in a single thread: returns whether the service has terminated already.
+   */
+  @Override
+  public boolean awaitTermination(long timeout, TimeUnit unit) {
+    return isTerminated();
+  }
+
+  private void drain() {
+    drainScheduled = false;
+    batch = queue;
+    queue = new ArrayList<>();
+    try {
+      for (next = 0; next < batch.size(); ) {
+        Runnable task = batch.get(next++).task;
+        try {
+          task.run();
+        } catch (Throwable t) {
+          Dispatcher.reportUncaught(t);
+        }
+      }
+    } finally {
+      batch = null;
+    }
+  }
+
+  /**
+   * A command as given to {@link #execute(Runnable)}, to be returned by {@link #shutdownNow()},
+   * and the task running it.
+   */
+  private static final class Queued {
+    final Runnable command;
+    final Runnable task;
+
+    Queued(Runnable command, Runnable task) {
+      this.command = command;
+      this.task = task;
+    }
+  }
+}
@@ -0,0 +1,117 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package java.util.concurrent.impl;
+
+import com.google.gwt.core.client.GWT;
+
+import jsinterop.annotations.JsFunction;
+import jsinterop.annotations.JsMethod;
+import jsinterop.annotations.JsPackage;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Runs callbacks asynchronously, as microtasks where native promises are available and from a
+ * timer otherwise. All dispatched callbacks share a single scheduled drain, which runs inside one
+ * {@code $entry}. A callback throwing an exception is reported through
+ * {@link GWT#reportUncaughtException(Throwable)} and does not affect the others.
+ */
+public final class Dispatcher {
+
+  private static final JsPromise RESOLVED = isSupported() ? JsPromise.resolve(null) : null;
+
+  private static final TimerCallback DRAIN = entry(Dispatcher::drain);
+
+  private static final JsPromise.OnSettledCallback DRAIN_MICROTASK = value -> DRAIN.onTick();
+
+  private static final List<Runnable> ready = new ArrayList<>();
+
+  private static boolean drainScheduled;
+
+  public static void dispatch(Runnable task) {
+    ready.add(task);
+    if (!drainScheduled) {
+      drainScheduled = true;
+      if (RESOLVED != null) {
+        RESOLVED.then(DRAIN_MICROTASK, null);
+      } else {
+        setTimeout(DRAIN, 0);
+      }
+    }
+  }
+
+  /**
+   * Runs {@code task} from a timer, that is once all microtasks of the current turn have run.
+   */
+  public static void afterTurn(Runnable task) {
+    setTimeout(entry(task::run), 0);
+  }
+
+  /**
+   * Reports an exception thrown by a callback nobody else can handle.
+   */
+  public static void reportUncaught(Throwable t) {
+    GWT.reportUncaughtException(t);
+  }
+
+  private static void drain() {
+    // tasks dispatched while draining are appended and run in the same pass
+    for (int i = 0; i < ready.size(); i++) {
+      try {
+        ready.get(i).run();
+      } catch (Throwable t) {
+        reportUncaught(t);
+      }
+    }
+    ready.clear();
+    drainScheduled = false;
+  }
+
+  /*
+   * Implementation taken from:
+   * https://github.com/jakearchibald/es6-promise/blob/master/lib/promise/polyfill.js
+   */
+  private static native boolean isSupported() /*-{
+    return typeof Promise === "function"
+        // Some of these methods are missing from
+        // Firefox/Chrome experimental implementations
+        && "resolve" in Promise
+        && "reject" in Promise
+        && "all" in Promise
+        && "race" in Promise
+        // Older version of the spec had a resolver object
+        // as the arg rather than a function
+        && (function() {
+          var resolve;
+          new Promise(function(r) { resolve = r; });
+          return typeof resolve === "function";
+        }());
+  }-*/;
+
+  private static native TimerCallback entry(TimerCallback callback) /*-{
+    return $entry(callback);
+  }-*/;
+
+  @JsMethod(namespace = JsPackage.GLOBAL)
+  private static native int setTimeout(TimerCallback callback, int time);
+
+  @FunctionalInterface
+  @JsFunction
+  private interface TimerCallback {
+    void onTick();
+  }
+
+  private Dispatcher() { }
+}
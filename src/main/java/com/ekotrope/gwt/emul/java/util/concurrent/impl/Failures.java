@@ -0,0 +1,93 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package java.util.concurrent.impl;
+
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletionException;
+
+/**
+ * Creates the exceptions used on cancellation and failure propagation paths.
+ * <p>
+ * A failure propagating along a chain of stages is wrapped once: a {@link CompletionException}
+ * is passed on as is, so the dependents of a failed stage all share its wrapper. When the
+ * {@code completablefuture.stackless} configuration property is {@code true}, cancellations and
+ * wrappers are created without capturing a stack trace (the wrapped cause still has its own).
+ * Each is still a new instance, so unrelated futures never share a mutable exception.
+ */
+public final class Failures {
+
+  public static final boolean STACKLESS =
+      "true".equals(System.getProperty("completablefuture.stackless", "false"));
+
+  public static CancellationException cancellation() {
+    return STACKLESS ? new StacklessCancellationException() : new CancellationException();
+  }
+
+  public static CompletionException wrap(Throwable t) {
+    if (t instanceof CompletionException) {
+      return (CompletionException) t;
+    }
+    return STACKLESS ? new StacklessCompletionException(t) : new CompletionException(t);
+  }
+
+  /**
+   * Converts a rejection reason coming from JavaScript into a Throwable.
+   */
+  public static native Throwable fromJs(Object reason) /*-{
+    return @java.lang.Throwable::of(*)(reason);
+  }-*/;
+
+  /**
+   * Converts a failure into the rejection reason handed to JavaScript: the cause of a
+   * {@link CompletionException}, as the JavaScript object backing it, so that a native
+   * {@code catch} sees the original reason (or a real {@code TypeError}) rather than the wrapper.
+   */
+  public static Object toJs(Throwable t) {
+    if (t instanceof CompletionException && t.getCause() != null) {
+      t = t.getCause();
+    }
+    return backingJsObject(t);
+  }
+
+  private static native Object backingJsObject(Throwable t) /*-{
+    return t.@java.lang.Throwable::getBackingJsObject()();
+  }-*/;
+
+  /**
+   * Creates a JavaScript {@code TypeError}, as required by Promises/A+ for some rejections.
+   */
+  public static native Throwable typeError(String message) /*-{
+    return @java.lang.Throwable::of(*)(new TypeError(message));
+  }-*/;
+
+  private static final class StacklessCancellationException extends CancellationException {
+    @Override
+    public Throwable fillInStackTrace() {
+      return this;
+    }
+  }
+
+  private static final class StacklessCompletionException extends CompletionException {
+    StacklessCompletionException(Throwable cause) {
+      super(cause);
+    }
+
+    @Override
+    public Throwable fillInStackTrace() {
+      return this;
+    }
+  }
+
+  private Failures() { }
+}
@@ -44,7 +44,6 @@ final class JsPromise {
    * Method has no return value for simplicity because the return value of the method,
    * onFulfilled and onRejected (OnSettledCallback) are not used.
    */
-  // TODO: $entry ?
   public native void then(OnSettledCallback onFulfilled,
       OnSettledCallback onRejected);
 
@@ -0,0 +1,34 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package java.util.concurrent.impl;
+
+import jsinterop.annotations.JsFunction;
+import jsinterop.annotations.JsPackage;
+import jsinterop.annotations.JsType;
+
+/**
+ * Any JavaScript object with a Promises/A+ compliant {@code then} method, including native
+ * {@code Promise}s.
+ */
+@JsType(isNative = true, namespace = JsPackage.GLOBAL, name = "Object")
+public interface JsThenable {
+
+  void then(Callback onFulfilled, Callback onRejected);
+
+  @FunctionalInterface
+  @JsFunction
+  interface Callback {
+    Object call(Object value);
+  }
+}
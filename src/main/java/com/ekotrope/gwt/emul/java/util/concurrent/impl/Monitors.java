@@ -0,0 +1,75 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package java.util.concurrent.impl;
+
+/**
+ * Hook through which the default executor and the dispatcher of dependent stages let a task
+ * monitor time their tasks. With no monitor installed, scheduling a task costs a field read.
+ */
+public final class Monitors {
+
+  /**
+   * Wraps the tasks of the default executor and the dependent stages when they are scheduled.
+   */
+  public interface Monitor {
+    Runnable wrap(Runnable task);
+  }
+
+  /**
+   * A task carrying a label to report it by, such as the name of the future it is a stage of.
+   */
+  public interface Labelled extends Runnable {
+    String getLabel();
+  }
+
+  private static Monitor monitor;
+
+  /**
+   * Installs {@code monitor} for the default executor, replacing any other; {@code null}
+   * uninstalls it.
+   */
+  public static void install(Monitor monitor) {
+    Monitors.monitor = monitor;
+  }
+
+  public static boolean isInstalled() {
+    return monitor != null;
+  }
+
+  public static Runnable wrap(Runnable task) {
+    Monitor current = monitor;
+    return current == null ? task : current.wrap(task);
+  }
+
+  /**
+   * Labels {@code task} with {@code label} if it is a string, or else with the class name of
+   * {@code label}, typically the function given to a stage. The class name is only looked up when
+   * the label is read.
+   */
+  public static Labelled labelled(Object label, Runnable task) {
+    return new Labelled() {
+      @Override
+      public String getLabel() {
+        return label instanceof String ? (String) label : label.getClass().getName();
+      }
+
+      @Override
+      public void run() {
+        task.run();
+      }
+    };
+  }
+
+  private Monitors() { }
+}
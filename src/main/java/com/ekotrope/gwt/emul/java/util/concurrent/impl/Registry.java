@@ -0,0 +1,113 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package java.util.concurrent.impl;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Debug registry of incomplete futures, enabled by the {@code completablefuture.registry}
+ * configuration property. Futures are held through a {@code WeakRef} where it exists, so the
+ * registry does not keep abandoned futures alive. When disabled, every use of this class is
+ * guarded by the constant {@link #ENABLED} and compiled out.
+ */
+public final class Registry {
+
+  public static final boolean ENABLED =
+      "true".equals(System.getProperty("completablefuture.registry", "false"));
+
+  private static final boolean WEAK = supportsWeakRef();
+
+  private static final Set<Entry> pending = new HashSet<>();
+
+  public static Entry register(Object future) {
+    Entry entry = new Entry(future);
+    pending.add(entry);
+    return entry;
+  }
+
+  public static void unregister(Entry entry) {
+    pending.remove(entry);
+  }
+
+  /**
+   * Returns the entries of the futures still pending, dropping those of collected futures.
+   */
+  public static List<Entry> entries() {
+    List<Entry> entries = new ArrayList<>(pending.size());
+    List<Entry> collected = new ArrayList<>();
+    for (Entry entry : pending) {
+      if (entry.get() != null) {
+        entries.add(entry);
+      } else {
+        collected.add(entry);
+      }
+    }
+    pending.removeAll(collected);
+    return entries;
+  }
+
+  /**
+   * The registration of a future.
+   */
+  public static final class Entry {
+    private final Object reference;
+    private final String creationSite;
+    private final double createdAt;
+
+    private Entry(Object future) {
+      this.reference = WEAK ? weakRef(future) : future;
+      this.creationSite = creationSite();
+      this.createdAt = Timers.now();
+    }
+
+    /**
+     * Returns the future, {@code null} if it has been garbage collected.
+     */
+    public Object get() {
+      return WEAK ? deref(reference) : reference;
+    }
+
+    /**
+     * Returns the stack trace of the creation of the future, as formatted by the browser.
+     */
+    public String getCreationSite() {
+      return creationSite;
+    }
+
+    public double getCreatedAt() {
+      return createdAt;
+    }
+  }
+
+  private static native boolean supportsWeakRef() /*-{
+    return typeof WeakRef === "function";
+  }-*/;
+
+  private static native Object weakRef(Object target) /*-{
+    return new WeakRef(target);
+  }-*/;
+
+  private static native Object deref(Object reference) /*-{
+    return reference.deref() || null;
+  }-*/;
+
+  private static native String creationSite() /*-{
+    return new Error().stack || "";
+  }-*/;
+
+  private Registry() { }
+}
@@ -0,0 +1,207 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package java.util.concurrent.impl;
+
+import jsinterop.annotations.JsFunction;
+import jsinterop.annotations.JsMethod;
+import jsinterop.annotations.JsPackage;
+
+/**
+ * Timer facility shared by everything scheduling delayed work. Pending timeouts are kept in a
+ * binary heap ordered by deadline and a single native timer is armed for the earliest one; all
+ * timeouts due when it fires run inside one {@code $entry}.
+ */
+public final class Timers {
+
+  private static final TimerCallback FIRE = entry(Timers::fire);
+
+  private static Timeout[] heap = new Timeout[16];
+  private static int size;
+  private static double sequence;
+
+  /**
+   * Deadline the native timer is armed for, infinite if it is not armed.
+   */
+  private static double armedAt = Double.POSITIVE_INFINITY;
+  private static double armedTimer;
+
+  /**
+   * Runs {@code task}, in the current {@link Contexts context}, once {@code delayMillis} have
+   * elapsed. Timeouts with the same deadline run in the order they were scheduled.
+   */
+  public static Timeout schedule(Runnable task, double delayMillis) {
+    Timeout timeout = new Timeout(Contexts.wrap(task), now() + (delayMillis > 0 ? delayMillis : 0), sequence++);
+    add(timeout);
+    if (heap[0] == timeout) {
+      arm();
+    }
+    return timeout;
+  }
+
+  /**
+   * Returns the current time of the clock used for deadlines, in milliseconds.
+   */
+  public static native double now() /*-{
+    return typeof performance !== "undefined" && performance.now ? performance.now() : Date.now();
+  }-*/;
+
+  /**
+   * A scheduled task, which can be cancelled until it runs.
+   */
+  public static final class Timeout {
+    private final Runnable task;
+    private final double at;
+    private final double sequence;
+    private int index = -1;
+
+    private Timeout(Runnable task, double at, double sequence) {
+      this.task = task;
+      this.at = at;
+      this.sequence = sequence;
+    }
+
+    /**
+     * @return {@code true} if the task was still pending and will not run
+     */
+    public boolean cancel() {
+      if (index < 0) {
+        return false;
+      }
+      removeAt(index);
+      return true;
+    }
+
+    public boolean isPending() {
+      return index >= 0;
+    }
+
+    /**
+     * Returns the time this task is due at, on the clock of {@link Timers#now()}.
+     */
+    public double getDueAt() {
+      return at;
+    }
+
+    private boolean before(Timeout other) {
+      return at < other.at || at == other.at && sequence < other.sequence;
+    }
+  }
+
+  private static void fire() {
+    armedAt = Double.POSITIVE_INFINITY;
+    double now = now();
+    // timeouts scheduled by the tasks run on a later firing, even if already due
+    double limit = sequence;
+    while (size > 0 && heap[0].at <= now && heap[0].sequence < limit) {
+      Timeout timeout = heap[0];
+      removeAt(0);
+      try {
+        timeout.task.run();
+      } catch (Throwable t) {
+        Dispatcher.reportUncaught(t);
+      }
+    }
+    arm();
+  }
+
+  /**
+   * Arms the native timer for the earliest timeout, unless it is armed for that one already. A
+   * timer left armed for a cancelled timeout just fires early and re-arms.
+   */
+  private static void arm() {
+    if (size == 0 || heap[0].at >= armedAt) {
+      return;
+    }
+    if (armedAt != Double.POSITIVE_INFINITY) {
+      clearTimeout(armedTimer);
+    }
+    armedAt = heap[0].at;
+    // browsers truncate the delay to whole milliseconds, firing before the deadline would only
+    // re-arm the timer
+    armedTimer = setTimeout(FIRE, Math.max(0, Math.ceil(armedAt - now())));
+  }
+
+  private static void add(Timeout timeout) {
+    if (size == heap.length) {
+      Timeout[] grown = new Timeout[size * 2];
+      System.arraycopy(heap, 0, grown, 0, size);
+      heap = grown;
+    }
+    siftUp(size++, timeout);
+  }
+
+  private static void removeAt(int index) {
+    Timeout removed = heap[index];
+    removed.index = -1;
+    Timeout last = heap[--size];
+    heap[size] = null;
+    if (last != removed) {
+      siftDown(index, last);
+      if (heap[index] == last) {
+        siftUp(index, last);
+      }
+    }
+  }
+
+  private static void siftUp(int index, Timeout timeout) {
+    while (index > 0) {
+      int parent = (index - 1) >>> 1;
+      if (!timeout.before(heap[parent])) {
+        break;
+      }
+      place(index, heap[parent]);
+      index = parent;
+    }
+    place(index, timeout);
+  }
+
+  private static void siftDown(int index, Timeout timeout) {
+    int half = size >>> 1;
+    while (index < half) {
+      int child = 2 * index + 1;
+      if (child + 1 < size && heap[child + 1].before(heap[child])) {
+        child++;
+      }
+      if (!heap[child].before(timeout)) {
+        break;
+      }
+      place(index, heap[child]);
+      index = child;
+    }
+    place(index, timeout);
+  }
+
+  private static void place(int index, Timeout timeout) {
+    heap[index] = timeout;
+    timeout.index = index;
+  }
+
+  private static native TimerCallback entry(TimerCallback callback) /*-{
+    return $entry(callback);
+  }-*/;
+
+  @JsMethod(namespace = JsPackage.GLOBAL)
+  private static native double setTimeout(TimerCallback callback, double time);
+
+  @JsMethod(namespace = JsPackage.GLOBAL)
+  private static native void clearTimeout(double timer);
+
+  @FunctionalInterface
+  @JsFunction
+  private interface TimerCallback {
+    void onTick();
+  }
+
+  private Timers() { }
+}
@@ -0,0 +1,50 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package java.util.concurrent.impl;
+
+/**
+ * User Timing instrumentation of named futures, enabled by the
+ * {@code completablefuture.tracing} configuration property. When it is disabled, every use of
+ * this class is guarded by the constant {@link #ENABLED} and compiled out.
+ */
+public final class Tracing {
+
+  public static final boolean ENABLED =
+      "true".equals(System.getProperty("completablefuture.tracing", "false"));
+
+  public static double now() {
+    return Timers.now();
+  }
+
+  public static native void mark(String name) /*-{
+    if (typeof performance !== "undefined" && performance.mark) {
+      performance.mark(name);
+    }
+  }-*/;
+
+  /**
+   * Adds a measure from {@code start} to {@code end}, as returned by {@link #now()}.
+   */
+  public static native void measure(String name, double start, double end) /*-{
+    if (typeof performance !== "undefined" && performance.measure) {
+      try {
+        performance.measure(name, {start: start, end: end});
+      } catch (e) {
+        // User Timing Level 2 only takes mark names
+      }
+    }
+  }-*/;
+
+  private Tracing() { }
+}
@@ -0,0 +1,86 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package java.util.concurrent.impl;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletionException;
+
+/**
+ * Failures nobody consumed. A future failing without dependents is tracked, and the failures
+ * still unobserved after the current turn are reported through
+ * {@link Dispatcher#reportUncaught(Throwable)}, once for all such failures of the turn.
+ * Cancellations are never reported.
+ */
+public final class Unobserved {
+
+  /**
+   * A failed future, checked again once the turn is over.
+   */
+  public interface Failure {
+    /**
+     * Returns the failure if nobody consumed it yet, {@code null} otherwise.
+     */
+    Throwable get();
+  }
+
+  private static List<Failure> tracked;
+
+  /**
+   * Tracks the failure of a future which has no dependents, unless it is a cancellation.
+   */
+  public static void track(Throwable reason, Failure failure) {
+    if (isCancellation(reason)) {
+      return;
+    }
+    if (tracked == null) {
+      tracked = new ArrayList<>();
+      // a timer runs after all microtasks, so stages chained in this turn count as observers
+      Dispatcher.afterTurn(Unobserved::report);
+    }
+    tracked.add(failure);
+  }
+
+  private static boolean isCancellation(Throwable reason) {
+    return reason instanceof CancellationException
+        || reason instanceof CompletionException
+        && reason.getCause() instanceof CancellationException;
+  }
+
+  private static void report() {
+    List<Failure> candidates = tracked;
+    tracked = null;
+
+    List<Throwable> failures = new ArrayList<>();
+    for (Failure candidate : candidates) {
+      Throwable failure = candidate.get();
+      if (failure != null) {
+        failures.add(failure);
+      }
+    }
+    if (failures.size() == 1) {
+      Dispatcher.reportUncaught(failures.get(0));
+    } else if (!failures.isEmpty()) {
+      Throwable report = new CompletionException(
+          failures.size() + " futures failed without being observed", failures.get(0));
+      for (int i = 1; i < failures.size(); i++) {
+        report.addSuppressed(failures.get(i));
+      }
+      Dispatcher.reportUncaught(report);
+    }
+  }
+
+  private Unobserved() { }
+}
@@ -0,0 +1,136 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.ekotrope.gwt.concurrent;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Values bound with AsyncContext follow callbacks from where they are registered to where they
+ * run.
+ */
+public class AsyncContextTest extends AsyncTestCase {
+
+  private static final AsyncContext<String> SPAN = new AsyncContext<>();
+  private static final AsyncContext<String> USER = new AsyncContext<>();
+
+  private final List<Runnable> held = new ArrayList<>();
+  private final Executor holding = held::add;
+  private final List<String> seen = new ArrayList<>();
+
+  private void release() {
+    List<Runnable> toRun = new ArrayList<>(held);
+    held.clear();
+    for (Runnable command : toRun) {
+      command.run();
+    }
+  }
+
+  public void testCallBindsAndRestores() {
+    assertNull(SPAN.get());
+    String result = SPAN.call("outer", () -> {
+      USER.run("alice", () -> {
+        SPAN.run("inner", () -> seen.add(SPAN.get() + " " + USER.get()));
+        seen.add(SPAN.get() + " " + USER.get());
+      });
+      return SPAN.get();
+    });
+    assertEquals("outer", result);
+    assertEquals(Arrays.asList("inner alice", "outer alice"), seen);
+    assertNull(SPAN.get());
+    assertNull(USER.get());
+  }
+
+  public void testCallRestoresWhenActionThrows() {
+    try {
+      SPAN.run("span", () -> {
+        throw new IllegalStateException();
+      });
+      fail();
+    } catch (IllegalStateException expected) {
+    }
+    assertNull(SPAN.get());
+  }
+
+  public void testStageRunsInTheContextItWasRegisteredIn() {
+    CompletableFuture<String> future = new CompletableFuture<>();
+    CompletableFuture<String> stage =
+        SPAN.call("registered", () -> future.thenApply(value -> value + " " + SPAN.get()));
+    SPAN.run("completing", () -> future.complete("value"));
+    finishAfter(10, () -> {
+      assertEquals("value registered", stage.join());
+      assertNull(SPAN.get());
+    });
+  }
+
+  public void testStageRegisteredWithoutContextSeesNone() {
+    CompletableFuture<String> future = new CompletableFuture<>();
+    CompletableFuture<String> stage = future.thenApply(value -> value + " " + SPAN.get());
+    SPAN.run("completing", () -> future.complete("value"));
+    finishAfter(10, () -> assertEquals("value null", stage.join()));
+  }
+
+  public void testContextFollowsAsyncHops() {
+    CompletableFuture<String> result = SPAN.call("span", () -> CompletableFuture
+        .supplyAsync(() -> SPAN.get(), holding)
+        .thenApplyAsync(value -> value + " " + SPAN.get(), holding)
+        .thenCompose(value -> CompletableFuture.supplyAsync(() -> value + " " + SPAN.get()))
+        .thenApplyAsync(value -> value + " " + SPAN.get()));
+    // the held tasks run outside of any context, each binds its own
+    release();
+    finishAfter(10, () -> {
+      release();
+      assertNull(SPAN.get());
+    }).then(10, () -> assertEquals("span span span span", result.join()));
+  }
+
+  public void testPrimitiveFutureStagesKeepContext() {
+    IntCompletableFuture future = new IntCompletableFuture();
+    CompletableFuture<String> stage =
+        SPAN.call("span", () -> future.thenApplyAsync(value -> value + " " + SPAN.get(), holding));
+    future.complete(1);
+    finishAfter(10, () -> {
+      release();
+      assertEquals("1 span", stage.join());
+    });
+  }
+
+  public void testTimerTasksKeepContext() {
+    int[] calls = {0};
+    CompletableFuture<String> result = SPAN.call("span", () -> Retry.withBackoff(() -> {
+      seen.add(SPAN.get());
+      if (++calls[0] == 1) {
+        throw new IllegalStateException();
+      }
+      return CompletableFuture.completedFuture("done");
+    }, new Retry.Policy().baseDelay(50, TimeUnit.MILLISECONDS).jitter(0)));
+    finishAfter(200, () -> {
+      assertEquals("done", result.join());
+      // the second attempt ran from the backoff timer
+      assertEquals(Arrays.asList("span", "span"), seen);
+    });
+  }
+
+  public void testWrapBindsTheCurrentContext() {
+    Runnable listener = SPAN.call("span", () -> AsyncContext.wrap(() -> seen.add(SPAN.get())));
+    listener.run();
+    SPAN.run("other", listener);
+    assertEquals(Arrays.asList("span", "span"), seen);
+    assertNull(SPAN.get());
+  }
+}
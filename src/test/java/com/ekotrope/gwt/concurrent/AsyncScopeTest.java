@@ -0,0 +1,127 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.ekotrope.gwt.concurrent;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+
+public class AsyncScopeTest extends AsyncTestCase {
+
+  public void testJoinCompletesOnceEveryChildSucceeded() {
+    CompletableFuture<String> a = new CompletableFuture<>();
+    CompletableFuture<String> b = new CompletableFuture<>();
+    AsyncScope scope = new AsyncScope();
+    CompletableFuture<String> childA = scope.fork(() -> a);
+    CompletableFuture<String> childB = scope.fork(() -> b);
+    CompletableFuture<Void> joined = scope.join();
+    scope.close();
+    a.complete("a");
+    finishAfter(10, () -> {
+      assertFalse(joined.isDone());
+      b.complete("b");
+    }).then(10, () -> {
+      assertTrue(joined.isDone());
+      assertFalse(joined.isCompletedExceptionally());
+      assertEquals("a", childA.join());
+      assertEquals("b", childB.join());
+    });
+  }
+
+  public void testJoinCompletesWhenLastChildIsCancelled() {
+    CompletableFuture<String> a = new CompletableFuture<>();
+    AsyncScope scope = new AsyncScope();
+    CompletableFuture<String> childA = scope.fork(() -> a);
+    CompletableFuture<String> childB = scope.fork(CompletableFuture::new);
+    CompletableFuture<Void> joined = scope.join();
+    a.complete("a");
+    finishAfter(10, () -> {
+      assertFalse(joined.isDone());
+      childB.cancel(false);
+    }).then(10, () -> {
+      assertTrue(joined.isDone());
+      assertFalse(joined.isCompletedExceptionally());
+      assertEquals("a", childA.join());
+    });
+  }
+
+  public void testEmptyScopeJoinsAtOnce() {
+    AsyncScope scope = new AsyncScope();
+    assertTrue(scope.join().isDone());
+  }
+
+  public void testFirstFailureCancelsSiblings() {
+    CompletableFuture<String> failing = new CompletableFuture<>();
+    CompletableFuture<String> sibling = new CompletableFuture<>();
+    AsyncScope scope = new AsyncScope();
+    scope.fork(() -> failing);
+    CompletableFuture<String> siblingChild = scope.fork(() -> sibling);
+    CompletableFuture<Void> joined = scope.join();
+    joined.handle((value, e) -> null);
+    IllegalStateException failure = new IllegalStateException();
+    failing.completeExceptionally(failure);
+    finishAfter(10, () -> {
+      try {
+        joined.join();
+        fail();
+      } catch (CompletionException e) {
+        assertSame(failure, e.getCause());
+      }
+      assertTrue(siblingChild.isCancelled());
+      assertTrue(sibling.isCancelled());
+      // the failure is reported through the aggregated result only
+      assertTrue(uncaught.isEmpty());
+    });
+  }
+
+  public void testForkAfterFailureIsCancelled() {
+    AsyncScope scope = new AsyncScope();
+    scope.fork(() -> {
+      throw new IllegalStateException();
+    });
+    finishAfter(10, () -> {
+      CompletableFuture<String> late = scope.fork(CompletableFuture::new);
+      assertTrue(late.isCancelled());
+      scope.join().exceptionally(e -> null);
+    });
+  }
+
+  public void testCloseWithoutJoinCancelsChildren() {
+    CompletableFuture<String> running = new CompletableFuture<>();
+    CompletableFuture<String> child;
+    try (AsyncScope scope = new AsyncScope()) {
+      child = scope.fork(() -> running);
+    }
+    assertTrue(child.isCancelled());
+    assertTrue(running.isCancelled());
+  }
+
+  public void testCancellingJoinedResultCancelsChildren() {
+    CompletableFuture<String> running = new CompletableFuture<>();
+    AsyncScope scope = new AsyncScope();
+    CompletableFuture<String> child = scope.fork(() -> running);
+    scope.join().cancel(false);
+    assertTrue(child.isCancelled());
+    assertTrue(running.isCancelled());
+  }
+
+  public void testForkAfterJoinThrows() {
+    AsyncScope scope = new AsyncScope();
+    scope.join();
+    try {
+      scope.fork(CompletableFuture::new);
+      fail();
+    } catch (IllegalStateException expected) {
+    }
+  }
+}
@@ -0,0 +1,106 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.ekotrope.gwt.concurrent;
+
+import com.google.gwt.core.client.GWT;
+import com.google.gwt.junit.client.GWTTestCase;
+import com.google.gwt.user.client.Timer;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Base class of the asynchronous tests: runs them in the test module and records the
+ * exceptions reported through {@link GWT#reportUncaughtException(Throwable)}.
+ */
+public abstract class AsyncTestCase extends GWTTestCase {
+
+  static final int TIMEOUT_MILLIS = 5000;
+
+  final List<Throwable> uncaught = new ArrayList<>();
+  private GWT.UncaughtExceptionHandler previousHandler;
+  private Steps steps;
+
+  @Override
+  public String getModuleName() {
+    return "com.ekotrope.gwt.CompletableFutureTest";
+  }
+
+  @Override
+  protected void gwtSetUp() throws Exception {
+    previousHandler = GWT.getUncaughtExceptionHandler();
+    GWT.setUncaughtExceptionHandler(uncaught::add);
+  }
+
+  @Override
+  protected void gwtTearDown() throws Exception {
+    GWT.setUncaughtExceptionHandler(previousHandler);
+    steps = null;
+  }
+
+  /**
+   * Runs {@code step} after {@code delayMillis}, that is once the current turn and all the
+   * microtasks it queued are over, then finishes the test unless further steps are chained with
+   * {@link Steps#then(int, Runnable)}.
+   */
+  Steps finishAfter(int delayMillis, Runnable step) {
+    if (steps != null) {
+      throw new IllegalStateException("the steps of a test are chained with then()");
+    }
+    delayTestFinish(TIMEOUT_MILLIS);
+    steps = new Steps();
+    return steps.then(delayMillis, step);
+  }
+
+  /**
+   * The delayed steps of a test, each run its delay after the previous one. The test finishes
+   * after the last step.
+   */
+  final class Steps {
+    private final List<Integer> delays = new ArrayList<>();
+    private final List<Runnable> toRun = new ArrayList<>();
+    private int next;
+
+    /**
+     * Chains a step run {@code delayMillis} after the previous one. All steps are chained by the
+     * test method, before the first one runs.
+     */
+    Steps then(int delayMillis, Runnable step) {
+      if (next > 0) {
+        throw new IllegalStateException("steps cannot be chained once they run");
+      }
+      delays.add(delayMillis);
+      toRun.add(step);
+      if (toRun.size() == 1) {
+        scheduleNext();
+      }
+      return this;
+    }
+
+    private void scheduleNext() {
+      new Timer() {
+        @Override
+        public void run() {
+          toRun.get(next++).run();
+          if (next < toRun.size()) {
+            scheduleNext();
+          } else {
+            steps = null;
+            finishTest();
+          }
+        }
+      }.schedule(delays.get(next));
+    }
+  }
+}
@@ -0,0 +1,125 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.ekotrope.gwt.concurrent;
+
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+
+/**
+ * Completion states of a future: pending, completed with a value (including {@code null}),
+ * failed, cancelled.
+ */
+public class CompletionStateTest extends AsyncTestCase {
+
+  public void testPending() {
+    CompletableFuture<String> future = new CompletableFuture<>();
+    assertFalse(future.isDone());
+    assertFalse(future.isCompletedExceptionally());
+    assertEquals("absent", future.getNow("absent"));
+    assertNull(future.join());
+    assertEquals(0, future.getNumberOfDependents());
+  }
+
+  public void testNullValue() throws Exception {
+    CompletableFuture<String> future = new CompletableFuture<>();
+    assertTrue(future.complete(null));
+    assertTrue(future.isDone());
+    assertFalse(future.isCompletedExceptionally());
+    assertNull(future.getNow("absent"));
+    assertNull(future.get());
+    assertFalse(future.complete("again"));
+    assertNull(future.join());
+  }
+
+  public void testValue() throws Exception {
+    CompletableFuture<String> future = CompletableFuture.completedFuture("value");
+    assertTrue(future.isDone());
+    assertEquals("value", future.get());
+    assertFalse(future.completeExceptionally(new IllegalStateException()));
+    assertEquals("value", future.join());
+  }
+
+  public void testFailure() {
+    CompletableFuture<String> future = new CompletableFuture<>();
+    IllegalStateException failure = new IllegalStateException();
+    assertTrue(future.completeExceptionally(failure));
+    assertTrue(future.isDone());
+    assertTrue(future.isCompletedExceptionally());
+    assertFalse(future.isCancelled());
+    assertFalse(future.complete("value"));
+    try {
+      future.getNow("absent");
+      fail();
+    } catch (CompletionException e) {
+      assertSame(failure, e.getCause());
+    }
+    try {
+      future.get();
+      fail();
+    } catch (ExecutionException e) {
+      assertSame(failure, e.getCause());
+    } catch (InterruptedException e) {
+      fail();
+    }
+  }
+
+  public void testFailureWithThrowableValue() {
+    // a Throwable used as a value is not mistaken for a failure
+    IllegalStateException value = new IllegalStateException();
+    CompletableFuture<Throwable> future = CompletableFuture.completedFuture(value);
+    assertFalse(future.isCompletedExceptionally());
+    assertSame(value, future.join());
+  }
+
+  public void testCancelled() {
+    CompletableFuture<String> future = new CompletableFuture<>();
+    assertTrue(future.cancel(false));
+    assertTrue(future.isDone());
+    assertTrue(future.isCancelled());
+    assertTrue(future.isCompletedExceptionally());
+    try {
+      future.join();
+      fail();
+    } catch (CancellationException expected) {
+    }
+  }
+
+  public void testObtrude() {
+    CompletableFuture<String> future = CompletableFuture.completedFuture("value");
+    future.obtrudeValue(null);
+    assertNull(future.join());
+    future.obtrudeException(new IllegalStateException());
+    assertTrue(future.isCompletedExceptionally());
+    future.obtrudeValue("other");
+    assertFalse(future.isCompletedExceptionally());
+    assertEquals("other", future.join());
+  }
+
+  public void testDependentsSeeResult() {
+    CompletableFuture<String> future = new CompletableFuture<>();
+    CompletableFuture<String> first = future.thenApply(value -> "first " + value);
+    CompletableFuture<String> second = future.thenApplyAsync(value -> "second " + value);
+    CompletableFuture<String> third = future.handle((value, e) -> "third " + value);
+    assertEquals(3, future.getNumberOfDependents());
+    future.complete(null);
+    assertEquals(0, future.getNumberOfDependents());
+    finishAfter(0, () -> {
+      assertEquals("first null", first.join());
+      assertEquals("second null", second.join());
+      assertEquals("third null", third.join());
+    });
+  }
+}
@@ -0,0 +1,147 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.ekotrope.gwt.concurrent;
+
+import com.google.gwt.user.client.Timer;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Timeouts set by orTimeout, and deadlines set by withDeadline and inherited by derived stages.
+ */
+public class DeadlineTest extends AsyncTestCase {
+
+  private static boolean timedOut(CompletableFuture<?> future) {
+    try {
+      future.join();
+    } catch (CompletionException e) {
+      return e.getCause() instanceof TimeoutException;
+    }
+    return false;
+  }
+
+  public void testOrTimeout() {
+    CompletableFuture<String> future = new CompletableFuture<String>()
+        .orTimeout(50, TimeUnit.MILLISECONDS);
+    CompletableFuture<String> completed = new CompletableFuture<String>()
+        .orTimeout(50, TimeUnit.MILLISECONDS);
+    completed.complete("done");
+    finishAfter(40, () -> {
+      assertFalse(future.isDone());
+    }).then(20, () -> {
+      assertTrue(timedOut(future));
+      assertEquals("done", completed.join());
+    });
+  }
+
+  public void testOrTimeoutIsNotInherited() {
+    CompletableFuture<String> future = new CompletableFuture<String>()
+        .orTimeout(50, TimeUnit.MILLISECONDS);
+    List<String> ran = new ArrayList<>();
+    CompletableFuture<Void> stage = future.thenAcceptAsync(ran::add, delayed(100));
+    future.complete("value");
+    finishAfter(200, () -> {
+      assertEquals(Arrays.asList("value"), ran);
+      assertTrue(stage.isDone() && !stage.isCompletedExceptionally());
+    });
+  }
+
+  public void testEarliestOrTimeoutWins() {
+    CompletableFuture<String> future = new CompletableFuture<String>()
+        .orTimeout(50, TimeUnit.MILLISECONDS)
+        .orTimeout(1000, TimeUnit.MILLISECONDS);
+    finishAfter(100, () -> assertTrue(timedOut(future)));
+  }
+
+  public void testStageAfterDeadlineDoesNotRun() {
+    CompletableFuture<String> future = new CompletableFuture<String>()
+        .withDeadline(50, TimeUnit.MILLISECONDS);
+    List<String> ran = new ArrayList<>();
+    CompletableFuture<Void> stage = future.thenAcceptAsync(ran::add, delayed(100));
+    future.complete("value");
+    finishAfter(200, () -> {
+      assertTrue(ran.isEmpty());
+      assertTrue(timedOut(stage));
+    });
+  }
+
+  public void testLaterDeadlineKeepsInheritedDeadline() {
+    CompletableFuture<String> future = new CompletableFuture<String>()
+        .withDeadline(50, TimeUnit.MILLISECONDS);
+    Executor never = command -> { };
+    CompletableFuture<String> stage = future.thenApplyAsync(value -> value, never)
+        .withDeadline(1000, TimeUnit.MILLISECONDS);
+    future.complete("value");
+    finishAfter(100, () -> assertTrue(timedOut(stage)));
+  }
+
+  public void testEarlierDeadlineReplacesInheritedDeadline() {
+    CompletableFuture<String> future = new CompletableFuture<String>()
+        .withDeadline(1000, TimeUnit.MILLISECONDS);
+    CompletableFuture<String> stage = future.thenApply(value -> value)
+        .withDeadline(50, TimeUnit.MILLISECONDS);
+    finishAfter(100, () -> {
+      assertTrue(timedOut(stage));
+      assertFalse(future.isDone());
+      future.complete("value");
+    });
+  }
+
+  public void testComposeCancelsInnerFutureAtDeadline() {
+    CompletableFuture<String> inner = new CompletableFuture<>();
+    CompletableFuture<String> future = new CompletableFuture<String>()
+        .withDeadline(50, TimeUnit.MILLISECONDS);
+    CompletableFuture<String> composed = future.thenCompose(value -> inner);
+    future.complete("value");
+    finishAfter(100, () -> {
+      assertTrue(timedOut(composed));
+      assertTrue(inner.isCancelled());
+    });
+  }
+
+  public void testComposeAsyncAppliesFunctionOnExecutor() {
+    List<Runnable> queued = new ArrayList<>();
+    List<String> applied = new ArrayList<>();
+    CompletableFuture<String> composed = CompletableFuture.completedFuture("value")
+        .thenComposeAsync(value -> {
+          applied.add(value);
+          return CompletableFuture.completedFuture(value + "!");
+        }, queued::add);
+    finishAfter(10, () -> {
+      assertTrue(applied.isEmpty());
+      assertEquals(1, queued.size());
+      queued.get(0).run();
+      assertEquals("value!", composed.getNow(null));
+    });
+  }
+
+  /**
+   * Returns an executor running its commands after {@code delayMillis}.
+   */
+  private static Executor delayed(int delayMillis) {
+    return command -> new Timer() {
+      @Override
+      public void run() {
+        command.run();
+      }
+    }.schedule(delayMillis);
+  }
+}
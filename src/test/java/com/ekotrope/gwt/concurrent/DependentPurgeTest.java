@@ -0,0 +1,74 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.ekotrope.gwt.concurrent;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Dependents whose futures were completed some other way are purged from a pending future.
+ */
+public class DependentPurgeTest extends AsyncTestCase {
+
+  public void testDeadSingleDependentIsReplaced() {
+    CompletableFuture<String> future = new CompletableFuture<>();
+    future.thenApply(value -> value).cancel(false);
+    assertEquals(1, future.getNumberOfDependents());
+    future.thenApply(value -> value);
+    assertEquals(1, future.getNumberOfDependents());
+  }
+
+  public void testCancelledDependentsArePurged() {
+    CompletableFuture<String> future = new CompletableFuture<>();
+    for (int i = 0; i < 1000; i++) {
+      future.thenApply(value -> value).cancel(false);
+      future.thenAcceptAsync(value -> { }).cancel(false);
+    }
+    assertTrue(future.getNumberOfDependents() < 20);
+  }
+
+  public void testCompletedAndObtrudedDependentsArePurged() {
+    CompletableFuture<String> future = new CompletableFuture<>();
+    for (int i = 0; i < 1000; i++) {
+      future.thenApply(value -> value).complete("done");
+      future.handle((value, e) -> value).obtrudeValue("obtruded");
+    }
+    assertTrue(future.getNumberOfDependents() < 20);
+  }
+
+  public void testLiveDependentsAreKept() {
+    CompletableFuture<String> future = new CompletableFuture<>();
+    List<CompletableFuture<String>> live = new ArrayList<>();
+    for (int i = 0; i < 100; i++) {
+      live.add(future.thenApply(value -> value + "!"));
+      future.thenApply(value -> value).cancel(false);
+    }
+    assertTrue(future.getNumberOfDependents() >= live.size());
+    future.complete("value");
+    finishAfter(0, () -> {
+      for (CompletableFuture<String> dependent : live) {
+        assertEquals("value!", dependent.join());
+      }
+    });
+  }
+
+  public void testPurgedDependentDoesNotRun() {
+    CompletableFuture<String> future = new CompletableFuture<>();
+    List<String> ran = new ArrayList<>();
+    future.thenApply(value -> ran.add(value)).cancel(false);
+    future.complete("value");
+    finishAfter(0, () -> assertTrue(ran.isEmpty()));
+  }
+}
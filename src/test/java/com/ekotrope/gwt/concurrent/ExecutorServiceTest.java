@@ -0,0 +1,127 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.ekotrope.gwt.concurrent;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.AbstractExecutorService;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+public class ExecutorServiceTest extends AsyncTestCase {
+
+  public void testShutdownNowReturnsAndCancelsSubmittedTasks() {
+    ExecutorService executor = Executors.newSingleThreadExecutor();
+    Future<?> submitted = executor.submit(() -> { });
+    List<Runnable> dropped = executor.shutdownNow();
+    assertEquals(1, dropped.size());
+    assertSame(submitted, dropped.get(0));
+    assertTrue(submitted.isCancelled());
+  }
+
+  public void testShutdownNowCancelsTasksOfDroppedInvokeAll() throws Exception {
+    ExecutorService executor = Executors.newSingleThreadExecutor();
+    List<Callable<String>> tasks = Arrays.asList(() -> "a", () -> "b");
+    List<Future<String>> futures = executor.invokeAll(tasks);
+    assertEquals(1, executor.shutdownNow().size());
+    for (Future<String> future : futures) {
+      assertTrue(future.isCancelled());
+    }
+  }
+
+  public void testCommandsRunInSubmissionOrder() {
+    ExecutorService executor = Executors.newSingleThreadExecutor();
+    List<String> ran = new ArrayList<>();
+    executor.execute(() -> ran.add("a"));
+    executor.execute(() -> ran.add("b"));
+    assertTrue(ran.isEmpty());
+    finishAfter(10, () -> assertEquals(Arrays.asList("a", "b"), ran));
+  }
+
+  public void testTimedInvokeAllCancelsUnfinishedTasks() throws Exception {
+    HeldExecutor executor = new HeldExecutor();
+    List<String> ran = new ArrayList<>();
+    List<Future<String>> futures = executor.invokeAll(
+        Arrays.<Callable<String>>asList(() -> "a", () -> {
+          ran.add("b");
+          return "b";
+        }), 10, TimeUnit.MILLISECONDS);
+    finishAfter(30, () -> {
+      assertTrue(futures.get(0).isCancelled());
+      assertTrue(futures.get(1).isCancelled());
+      executor.release();
+      assertTrue(ran.isEmpty());
+    });
+  }
+
+  public void testTimedInvokeAllKeepsCompletedTasks() throws Exception {
+    ExecutorService executor = Executors.newSingleThreadExecutor();
+    List<Future<String>> futures = executor.invokeAll(
+        Arrays.<Callable<String>>asList(() -> "a", () -> "b"), 10, TimeUnit.MILLISECONDS);
+    finishAfter(30, () -> {
+      try {
+        assertEquals("a", futures.get(0).get());
+        assertEquals("b", futures.get(1).get());
+      } catch (Exception e) {
+        throw new AssertionError(e);
+      }
+    });
+  }
+
+  /**
+   * Holds its commands until released, as a busy executor would.
+   */
+  private static final class HeldExecutor extends AbstractExecutorService {
+    private final List<Runnable> held = new ArrayList<>();
+
+    @Override
+    public void execute(Runnable command) {
+      held.add(command);
+    }
+
+    void release() {
+      for (Runnable command : held) {
+        command.run();
+      }
+      held.clear();
+    }
+
+    @Override
+    public void shutdown() { }
+
+    @Override
+    public List<Runnable> shutdownNow() {
+      return new ArrayList<>();
+    }
+
+    @Override
+    public boolean isShutdown() {
+      return false;
+    }
+
+    @Override
+    public boolean isTerminated() {
+      return false;
+    }
+
+    @Override
+    public boolean awaitTermination(long timeout, TimeUnit unit) {
+      return false;
+    }
+  }
+}
@@ -0,0 +1,128 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.ekotrope.gwt.concurrent;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveTask;
+import java.util.concurrent.RejectedExecutionException;
+
+public class ForkJoinTest extends AsyncTestCase {
+
+  private static final class Fibonacci extends RecursiveTask<Integer> {
+    private final int n;
+
+    Fibonacci(int n) {
+      this.n = n;
+    }
+
+    @Override
+    protected Integer compute() {
+      if (n < 2) {
+        return n;
+      }
+      Fibonacci first = new Fibonacci(n - 1);
+      first.fork();
+      return new Fibonacci(n - 2).compute() + first.join();
+    }
+  }
+
+  public void testDivideAndConquerRunsInline() {
+    assertEquals(55, (int) ForkJoinPool.commonPool().invoke(new Fibonacci(10)));
+  }
+
+  public void testJoinTakesBackForkedTask() {
+    List<String> ran = new ArrayList<>();
+    ForkJoinTask<?> task = ForkJoinTask.adapt(() -> ran.add("task"));
+    task.fork();
+    task.join();
+    assertEquals(1, ran.size());
+    finishAfter(10, () -> assertEquals(1, ran.size()));
+  }
+
+  public void testSubmittedTasksRunDeferredInOrder() {
+    ForkJoinPool pool = new ForkJoinPool();
+    List<String> ran = new ArrayList<>();
+    pool.execute(() -> ran.add("a"));
+    pool.submit(() -> ran.add("b"));
+    assertTrue(ran.isEmpty());
+    assertEquals(2, pool.getQueuedTaskCount());
+    finishAfter(10, () -> {
+      assertEquals(Arrays.asList("a", "b"), ran);
+      assertTrue(pool.isQuiescent());
+    });
+  }
+
+  public void testGetRunsQueuedTaskInline() throws Exception {
+    ForkJoinPool pool = new ForkJoinPool();
+    ForkJoinTask<String> task = pool.submit(() -> "done");
+    assertEquals("done", task.get());
+  }
+
+  public void testFailureIsRethrownByJoinAndWrappedByGet() {
+    ForkJoinTask<String> task = ForkJoinTask.adapt(() -> {
+      throw new IllegalStateException();
+    });
+    try {
+      task.join();
+      fail();
+    } catch (IllegalStateException expected) {
+    }
+    try {
+      task.get();
+      fail();
+    } catch (ExecutionException e) {
+      assertTrue(e.getCause() instanceof IllegalStateException);
+    } catch (InterruptedException e) {
+      throw new AssertionError(e);
+    }
+    assertTrue(task.isCompletedAbnormally());
+  }
+
+  public void testFailedCommandIsReportedUncaught() {
+    ForkJoinPool pool = new ForkJoinPool();
+    IllegalStateException failure = new IllegalStateException();
+    pool.execute(() -> {
+      throw failure;
+    });
+    finishAfter(10, () -> assertEquals(Arrays.asList(failure), uncaught));
+  }
+
+  public void testShutdownNowCancelsQueuedTasks() {
+    ForkJoinPool pool = new ForkJoinPool();
+    ForkJoinTask<String> task = pool.submit(() -> "never");
+    pool.shutdownNow();
+    assertTrue(task.isCancelled());
+    try {
+      task.join();
+      fail();
+    } catch (CancellationException expected) {
+    }
+    try {
+      pool.execute(() -> { });
+      fail();
+    } catch (RejectedExecutionException expected) {
+    }
+  }
+
+  public void testCommonPoolIgnoresShutdown() {
+    ForkJoinPool.commonPool().shutdown();
+    assertFalse(ForkJoinPool.commonPool().isShutdown());
+  }
+}
@@ -0,0 +1,113 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.ekotrope.gwt.concurrent;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Chains of synchronous stages registered on an incomplete future, which run as one callback.
+ */
+public class FusedChainTest extends AsyncTestCase {
+
+  public void testChainRunsInOrder() {
+    CompletableFuture<Integer> f = new CompletableFuture<>();
+    CompletableFuture<Integer> g = f.thenApply(x -> x + 1);
+    CompletableFuture<Integer> h = g.thenApply(x -> x * 2);
+    assertEquals(1, f.getNumberOfDependents());
+    f.complete(1);
+    finishAfter(0, () -> {
+      assertEquals(Integer.valueOf(2), g.join());
+      assertEquals(Integer.valueOf(4), h.join());
+    });
+  }
+
+  public void testCompletingMidChain() {
+    CompletableFuture<Integer> f = new CompletableFuture<>();
+    CompletableFuture<Integer> g = f.thenApply(x -> x + 1);
+    CompletableFuture<Integer> h = g.thenApply(x -> x * 2);
+    g.complete(5);
+    finishAfter(0, () -> {
+      assertEquals(Integer.valueOf(10), h.join());
+      f.complete(1);
+    }).then(0, () -> {
+      assertEquals(Integer.valueOf(5), g.join());
+      assertEquals(Integer.valueOf(10), h.join());
+    });
+  }
+
+  public void testObtrudeAfterSplit() {
+    CompletableFuture<Integer> f = new CompletableFuture<>();
+    CompletableFuture<Integer> g = f.thenApply(x -> x + 1);
+    CompletableFuture<Integer> h = g.thenApply(x -> x * 2);
+    g.complete(5);
+    // the stages split off g have not run yet
+    g.obtrudeValue(7);
+    finishAfter(0, () -> {
+      assertEquals(Integer.valueOf(14), h.join());
+      assertTrue(uncaught.isEmpty());
+    });
+  }
+
+  public void testObtrudeAfterSplitRan() {
+    CompletableFuture<Integer> f = new CompletableFuture<>();
+    CompletableFuture<Integer> g = f.thenApply(x -> x + 1);
+    CompletableFuture<Integer> h = g.thenApply(x -> x * 2);
+    g.complete(5);
+    List<CompletableFuture<Integer>> i = new ArrayList<>();
+    finishAfter(0, () -> {
+      g.obtrudeValue(7);
+      i.add(g.thenApply(x -> x + 1));
+    }).then(0, () -> {
+      assertEquals(Integer.valueOf(10), h.join());
+      assertEquals(Integer.valueOf(8), i.get(0).join());
+      assertTrue(uncaught.isEmpty());
+    });
+  }
+
+  public void testObtrudeInputOfChain() {
+    CompletableFuture<Integer> f = new CompletableFuture<>();
+    CompletableFuture<Integer> g = f.thenApply(x -> x + 1);
+    f.complete(1);
+    f.obtrudeValue(2);
+    finishAfter(0, () -> {
+      assertEquals(Integer.valueOf(3), g.join());
+      assertTrue(uncaught.isEmpty());
+    });
+  }
+
+  public void testStageAddedAfterSplitJoinsTheRest() {
+    CompletableFuture<Integer> f = new CompletableFuture<>();
+    CompletableFuture<Integer> g = f.thenApply(x -> x + 1);
+    CompletableFuture<Integer> h = g.thenApply(x -> x * 2);
+    g.complete(5);
+    CompletableFuture<Integer> i = h.thenApply(x -> x + 1);
+    finishAfter(0, () -> {
+      assertEquals(Integer.valueOf(11), i.join());
+      assertFalse(f.isDone());
+    });
+  }
+
+  public void testFailurePropagatesThroughChain() {
+    CompletableFuture<Integer> f = new CompletableFuture<>();
+    CompletableFuture<Integer> h = f.thenApply(x -> x + 1).thenApply(x -> x * 2);
+    CompletableFuture<Integer> recovered = h.exceptionally(e -> -1);
+    f.completeExceptionally(new IllegalStateException());
+    finishAfter(10, () -> {
+      assertEquals(Integer.valueOf(-1), recovered.join());
+      assertTrue(uncaught.isEmpty());
+    });
+  }
+}
@@ -0,0 +1,121 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.ekotrope.gwt.concurrent;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.TimeUnit;
+
+public class HedgeTest extends AsyncTestCase {
+
+  private final List<CompletableFuture<String>> attempts = new ArrayList<>();
+
+  private CompletableFuture<String> attempt() {
+    CompletableFuture<String> attempt = new CompletableFuture<>();
+    attempts.add(attempt);
+    return attempt;
+  }
+
+  public void testFastAttemptFiresNoHedge() {
+    Hedge hedge = new Hedge(100, TimeUnit.MILLISECONDS, 2);
+    CompletableFuture<String> result = hedge.call(this::attempt);
+    attempts.get(0).complete("first");
+    finishAfter(500, () -> {
+      assertEquals("first", result.join());
+      assertEquals(1, attempts.size());
+      assertEquals(0, hedge.getHedgesFired());
+    });
+  }
+
+  public void testHedgeWinsAndCancelsSlowAttempt() {
+    Hedge hedge = new Hedge(100, TimeUnit.MILLISECONDS, 2);
+    CompletableFuture<String> result = hedge.call(this::attempt);
+    finishAfter(150, () -> {
+      assertEquals(2, attempts.size());
+      attempts.get(1).complete("hedge");
+    }).then(500, () -> {
+      assertEquals("hedge", result.join());
+      assertTrue(attempts.get(0).isCancelled());
+      assertEquals(2, attempts.size());
+      assertEquals(1, hedge.getHedgesFired());
+      assertEquals(1, hedge.getHedgesWon());
+    });
+  }
+
+  public void testFailureWithNothingInFlightFiresNextHedgeAtOnce() {
+    Hedge hedge = new Hedge(100, TimeUnit.MILLISECONDS, 2);
+    CompletableFuture<String> result = hedge.call(this::attempt);
+    attempts.get(0).completeExceptionally(new IllegalStateException());
+    finishAfter(10, () -> {
+      assertFalse(result.isDone());
+      assertEquals(2, attempts.size());
+      attempts.get(1).complete("hedge");
+    }).then(10, () -> assertEquals("hedge", result.join()));
+  }
+
+  public void testFailureWhileOthersInFlightIsIgnored() {
+    Hedge hedge = new Hedge(100, TimeUnit.MILLISECONDS, 1);
+    CompletableFuture<String> result = hedge.call(this::attempt);
+    finishAfter(150, () -> {
+      attempts.get(1).completeExceptionally(new IllegalStateException());
+    }).then(10, () -> {
+      assertFalse(result.isDone());
+      attempts.get(0).complete("first");
+    }).then(10, () -> assertEquals("first", result.join()));
+  }
+
+  public void testFailsOnceEveryAttemptFailed() {
+    Hedge hedge = new Hedge(100, TimeUnit.MILLISECONDS, 2);
+    IllegalStateException last = new IllegalStateException("last");
+    int[] calls = {0};
+    CompletableFuture<String> result = hedge.call(() -> {
+      CompletableFuture<String> attempt = new CompletableFuture<>();
+      attempt.completeExceptionally(++calls[0] == 3 ? last : new IllegalStateException());
+      return attempt;
+    });
+    finishAfter(10, () -> {
+      assertEquals(3, calls[0]);
+      try {
+        result.join();
+        fail();
+      } catch (CompletionException e) {
+        assertSame(last, e.getCause());
+      }
+    });
+  }
+
+  public void testThrowingAttemptFiresNextHedge() {
+    Hedge hedge = new Hedge(100, TimeUnit.MILLISECONDS, 1);
+    int[] calls = {0};
+    CompletableFuture<String> result = hedge.call(() -> {
+      if (++calls[0] == 1) {
+        throw new IllegalStateException();
+      }
+      return CompletableFuture.completedFuture("hedge");
+    });
+    finishAfter(10, () -> assertEquals("hedge", result.join()));
+  }
+
+  public void testCancelCancelsAttemptsInFlight() {
+    Hedge hedge = new Hedge(100, TimeUnit.MILLISECONDS, 1);
+    CompletableFuture<String> result = hedge.call(this::attempt);
+    finishAfter(150, () -> {
+      result.cancel(false);
+      assertTrue(attempts.get(0).isCancelled());
+      assertTrue(attempts.get(1).isCancelled());
+    }).then(500, () -> assertEquals(2, attempts.size()));
+  }
+}
@@ -0,0 +1,155 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.ekotrope.gwt.concurrent;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+import jsinterop.annotations.JsFunction;
+
+/**
+ * The {@code then} method CompletableFuture exports to JavaScript, as used by {@code await}.
+ * Needs {@code -generateJsInteropExports}, see the gwt-maven-plugin configuration.
+ */
+public class JsThenTest extends AsyncTestCase {
+
+  @FunctionalInterface
+  @JsFunction
+  interface Callback {
+    Object call(Object value);
+  }
+
+  /**
+   * Calls {@code future.then(onFulfilled, onRejected)} the way native code does.
+   */
+  private static native Object then(Object future, Callback onFulfilled, Callback onRejected) /*-{
+    return future.then(onFulfilled, onRejected);
+  }-*/;
+
+  private static native boolean isExported(Object future) /*-{
+    return typeof future.then === "function";
+  }-*/;
+
+  private static native Object backingJsObject(Throwable t) /*-{
+    return t.@java.lang.Throwable::getBackingJsObject()();
+  }-*/;
+
+  private static native boolean isTypeError(Object reason) /*-{
+    return reason instanceof TypeError;
+  }-*/;
+
+  /**
+   * Returns a plain JavaScript thenable fulfilled with {@code value}.
+   */
+  private static native Object thenable(Object value) /*-{
+    return { then: function(onFulfilled) { onFulfilled(value); } };
+  }-*/;
+
+  @Override
+  protected void gwtSetUp() throws Exception {
+    super.gwtSetUp();
+    assertTrue("then() is not exported, compile with -generateJsInteropExports",
+        isExported(new CompletableFuture<>()));
+  }
+
+  @SuppressWarnings("unchecked")
+  private static CompletableFuture<Object> thenOf(Object future, Callback onFulfilled,
+      Callback onRejected) {
+    return (CompletableFuture<Object>) then(future, onFulfilled, onRejected);
+  }
+
+  public void testFulfilledCallbackRunsAsynchronously() {
+    List<Object> seen = new ArrayList<>();
+    CompletableFuture<Object> chained = thenOf(CompletableFuture.completedFuture("value"),
+        value -> {
+          seen.add(value);
+          return value + "!";
+        }, null);
+    assertTrue(seen.isEmpty());
+    finishAfter(10, () -> {
+      assertEquals(1, seen.size());
+      assertEquals("value", seen.get(0));
+      assertEquals("value!", chained.join());
+    });
+  }
+
+  public void testMissingCallbackPassesResultOn() {
+    CompletableFuture<String> future = new CompletableFuture<>();
+    CompletableFuture<Object> chained = thenOf(future, null, null);
+    future.complete("value");
+    finishAfter(10, () -> assertEquals("value", chained.join()));
+  }
+
+  public void testRejectedCallbackSeesTheOriginalReason() {
+    IllegalStateException failure = new IllegalStateException("boom");
+    // the failure reaches the stage wrapped in a CompletionException
+    CompletableFuture<Object> failed = CompletableFuture.supplyAsync(() -> {
+      throw failure;
+    }).thenApply(value -> value);
+    List<Object> reasons = new ArrayList<>();
+    CompletableFuture<Object> recovered = thenOf(failed, null, reason -> {
+      reasons.add(reason);
+      return "recovered";
+    });
+    finishAfter(10, () -> {
+      assertEquals(1, reasons.size());
+      assertSame(backingJsObject(failure), reasons.get(0));
+      assertEquals("recovered", recovered.join());
+    });
+  }
+
+  public void testThrowingCallbackRejects() {
+    IllegalStateException failure = new IllegalStateException("boom");
+    CompletableFuture<Object> rejected = thenOf(CompletableFuture.completedFuture("value"),
+        value -> {
+          throw failure;
+        }, null);
+    List<Object> reasons = new ArrayList<>();
+    thenOf(rejected, null, reason -> reasons.add(reason));
+    finishAfter(10, () -> assertSame(backingJsObject(failure), reasons.get(0)));
+  }
+
+  public void testReturnedThenableIsAdopted() {
+    CompletableFuture<Object> chained = thenOf(CompletableFuture.completedFuture("value"),
+        value -> thenable("adopted"), null);
+    finishAfter(10, () -> assertEquals("adopted", chained.join()));
+  }
+
+  public void testReturnedFutureIsAdopted() {
+    CompletableFuture<String> inner = new CompletableFuture<>();
+    CompletableFuture<Object> chained = thenOf(CompletableFuture.completedFuture("value"),
+        value -> inner, null);
+    finishAfter(10, () -> {
+      assertFalse(chained.isDone());
+      inner.complete("inner");
+    }).then(10, () -> assertEquals("inner", chained.join()));
+  }
+
+  public void testReturningTheChainedFutureRejectsWithTypeError() {
+    List<CompletableFuture<Object>> chained = new ArrayList<>();
+    chained.add(thenOf(CompletableFuture.completedFuture("value"), value -> chained.get(0), null));
+    List<Object> reasons = new ArrayList<>();
+    thenOf(chained.get(0), null, reason -> reasons.add(reason));
+    finishAfter(10, () -> {
+      assertEquals(1, reasons.size());
+      assertTrue(isTypeError(reasons.get(0)));
+    });
+  }
+
+  public void testFromPromiseAssimilatesThenable() {
+    CompletableFuture<Object> future = CompletableFuture.fromPromise(thenable("value"));
+    finishAfter(10, () -> assertEquals("value", future.join()));
+  }
+}
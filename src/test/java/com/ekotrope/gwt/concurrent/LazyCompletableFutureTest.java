@@ -0,0 +1,168 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.ekotrope.gwt.concurrent;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.function.Supplier;
+
+/**
+ * Futures from supplyLazy, whose supplier is only scheduled once their result is demanded.
+ */
+public class LazyCompletableFutureTest extends AsyncTestCase {
+
+  private final List<Runnable> held = new ArrayList<>();
+  private final Executor holding = held::add;
+  private int runs;
+
+  private void release() {
+    List<Runnable> toRun = new ArrayList<>(held);
+    held.clear();
+    for (Runnable command : toRun) {
+      command.run();
+    }
+  }
+
+  private CompletableFuture<String> lazy() {
+    return CompletableFuture.supplyLazy(counting(() -> "value"), holding);
+  }
+
+  private <T> Supplier<T> counting(Supplier<T> supplier) {
+    return () -> {
+      runs++;
+      return supplier.get();
+    };
+  }
+
+  public void testNothingIsScheduledWithoutDemand() {
+    CompletableFuture<String> future = lazy();
+    assertFalse(future.isDone());
+    assertFalse(future.isCompletedExceptionally());
+    assertEquals(0, future.getNumberOfDependents());
+    assertTrue(held.isEmpty());
+    finishAfter(10, () -> {
+      assertTrue(held.isEmpty());
+      assertEquals(0, runs);
+    });
+  }
+
+  public void testJoinDemands() {
+    CompletableFuture<String> future = lazy();
+    assertNull(future.join());
+    assertEquals(1, held.size());
+    release();
+    assertEquals("value", future.join());
+    assertEquals(1, runs);
+  }
+
+  public void testGetNowDemands() {
+    CompletableFuture<String> future = lazy();
+    assertEquals("absent", future.getNow("absent"));
+    release();
+    assertEquals("value", future.getNow("absent"));
+  }
+
+  public void testGetDemands() throws Exception {
+    CompletableFuture<String> future = lazy();
+    try {
+      future.get();
+      fail();
+    } catch (InterruptedException expected) {
+    }
+    release();
+    assertEquals("value", future.get());
+  }
+
+  public void testSubscribingDemands() {
+    CompletableFuture<String> future = lazy();
+    CompletableFuture<String> stage = future.thenApply(value -> value + "!");
+    assertEquals(1, held.size());
+    release();
+    finishAfter(10, () -> assertEquals("value!", stage.join()));
+  }
+
+  public void testCombiningDemands() {
+    CompletableFuture<String> future = lazy();
+    CompletableFuture<String> combined = CompletableFuture.completedFuture("other")
+        .thenCombine(future, (a, b) -> a + " " + b);
+    CompletableFuture<Void> all = CompletableFuture.allOf(lazy());
+    assertEquals(2, held.size());
+    release();
+    finishAfter(10, () -> {
+      assertEquals("other value", combined.join());
+      assertTrue(all.isDone());
+    });
+  }
+
+  public void testSupplierRunsOnceForAllConsumers() {
+    CompletableFuture<String> future = lazy();
+    future.thenApply(value -> value);
+    future.thenAccept(value -> { });
+    future.join();
+    assertEquals(1, held.size());
+    release();
+    finishAfter(10, () -> {
+      assertEquals("value", future.join());
+      assertTrue(held.isEmpty());
+      assertEquals(1, runs);
+    });
+  }
+
+  public void testCompletingBeforeDemandSkipsSupplier() {
+    CompletableFuture<String> completed = lazy();
+    CompletableFuture<String> cancelled = lazy();
+    assertTrue(completed.complete("early"));
+    assertTrue(cancelled.cancel(false));
+    assertEquals("early", completed.join());
+    assertTrue(cancelled.isCancelled());
+    assertTrue(held.isEmpty());
+    assertEquals(0, runs);
+  }
+
+  public void testFailingSupplierFailsFuture() throws Exception {
+    IllegalStateException failure = new IllegalStateException();
+    CompletableFuture<String> future = CompletableFuture.supplyLazy(() -> {
+      throw failure;
+    }, holding);
+    future.getNow(null);
+    release();
+    try {
+      future.join();
+      fail();
+    } catch (CompletionException e) {
+      assertSame(failure, e.getCause());
+    }
+    try {
+      future.get();
+      fail();
+    } catch (ExecutionException e) {
+      assertSame(failure, e.getCause());
+    }
+  }
+
+  public void testDefaultExecutorRunsOnDemand() {
+    CompletableFuture<String> future = CompletableFuture.supplyLazy(counting(() -> "value"));
+    finishAfter(10, () -> {
+      assertEquals(0, runs);
+      future.join();
+    }).then(10, () -> {
+      assertEquals("value", future.join());
+      assertEquals(1, runs);
+    });
+  }
+}
@@ -0,0 +1,214 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.ekotrope.gwt.concurrent;
+
+import com.google.gwt.user.client.Timer;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+public class MessagePortChannelTest extends AsyncTestCase {
+
+  /**
+   * One end of an in-memory port pair, delivering each message to the other end in a later task.
+   * A {@code failure} is thrown by the next postMessage only.
+   */
+  private static final class FakePort implements MessagePortChannel.Port {
+    FakePort peer;
+    MessagePortChannel.MessageListener listener;
+    RuntimeException failure;
+    int posted;
+    boolean closed;
+
+    @Override
+    public void postMessage(Object message, Object[] transfer) {
+      if (failure != null) {
+        RuntimeException thrown = failure;
+        failure = null;
+        throw thrown;
+      }
+      posted++;
+      MessagePortChannel.MessageEvent event = new MessagePortChannel.MessageEvent();
+      event.data = (Object[]) message;
+      new Timer() {
+        @Override
+        public void run() {
+          if (!peer.closed && peer.listener != null) {
+            peer.listener.onEvent(event);
+          }
+        }
+      }.schedule(0);
+    }
+
+    @Override
+    public void addEventListener(String type, MessagePortChannel.MessageListener listener) {
+      if ("message".equals(type)) {
+        this.listener = listener;
+      }
+    }
+
+    @Override
+    public void removeEventListener(String type, MessagePortChannel.MessageListener listener) {
+      if ("message".equals(type) && this.listener == listener) {
+        this.listener = null;
+      }
+    }
+
+    @Override
+    public void start() { }
+
+    @Override
+    public void close() {
+      closed = true;
+    }
+  }
+
+  private final FakePort clientPort = new FakePort();
+  private final FakePort serverPort = new FakePort();
+  private MessagePortChannel client;
+  private MessagePortChannel server;
+
+  @Override
+  protected void gwtSetUp() throws Exception {
+    super.gwtSetUp();
+    clientPort.peer = serverPort;
+    serverPort.peer = clientPort;
+    client = new MessagePortChannel(clientPort);
+    server = new MessagePortChannel(serverPort);
+  }
+
+  private static Throwable causeOf(CompletableFuture<?> future) {
+    try {
+      future.join();
+      throw new AssertionError("completed normally");
+    } catch (CompletionException e) {
+      return e.getCause() != null ? e.getCause() : e;
+    } catch (CancellationException e) {
+      return e;
+    }
+  }
+
+  public void testCallsAreAnsweredAndBatched() {
+    server.setHandler(payload -> CompletableFuture.completedFuture("re: " + payload));
+    CompletableFuture<Object> first = client.call("a");
+    CompletableFuture<Object> second = client.call("b");
+    assertEquals(2, client.getPendingCount());
+    finishAfter(10, () -> {
+      assertEquals("re: a", first.join());
+      assertEquals("re: b", second.join());
+      assertEquals(1, clientPort.posted);
+      assertEquals(1, serverPort.posted);
+      assertEquals(0, client.getPendingCount());
+    });
+  }
+
+  public void testHandlerFailureIsAnsweredWithFailure() {
+    server.setHandler(payload -> {
+      if ("null".equals(payload)) {
+        return null;
+      }
+      CompletableFuture<Object> failed = new CompletableFuture<>();
+      failed.completeExceptionally(new IllegalStateException("boom"));
+      return failed;
+    });
+    CompletableFuture<Object> failing = client.call("fail");
+    CompletableFuture<Object> noResponse = client.call("null");
+    failing.exceptionally(e -> null);
+    noResponse.exceptionally(e -> null);
+    finishAfter(10, () -> {
+      assertTrue(causeOf(failing).getMessage().contains("boom"));
+      assertTrue(causeOf(noResponse).getMessage().contains("no response"));
+      // the failure was answered to the client, not reported on the server
+      assertEquals(Collections.emptyList(), uncaught);
+    });
+  }
+
+  public void testNoHandlerIsAnsweredWithFailure() {
+    CompletableFuture<Object> call = client.call("a");
+    call.exceptionally(e -> null);
+    finishAfter(10, () -> assertTrue(causeOf(call).getMessage().contains("no handler")));
+  }
+
+  public void testTimeoutIsTheOneTheCallWasMadeWith() {
+    server.setHandler(payload -> new CompletableFuture<>());
+    client.setTimeout(50, TimeUnit.MILLISECONDS);
+    CompletableFuture<Object> call = client.call("a");
+    call.exceptionally(e -> null);
+    client.setTimeout(0, TimeUnit.MILLISECONDS);
+    CompletableFuture<Object> untimed = client.call("b");
+    finishAfter(40, () -> assertFalse(call.isDone())).then(20, () -> {
+      Throwable cause = causeOf(call);
+      assertTrue(cause instanceof TimeoutException);
+      assertEquals("no response within 50ms", cause.getMessage());
+      assertFalse(untimed.isDone());
+      assertEquals(1, client.getPendingCount());
+      client.close();
+    });
+  }
+
+  public void testCloseCancelsPendingCalls() {
+    CompletableFuture<Object> call = client.call("a");
+    call.exceptionally(e -> null);
+    client.close();
+    assertTrue(client.isClosed());
+    assertTrue(clientPort.closed);
+    assertTrue(causeOf(call) instanceof CancellationException);
+    try {
+      client.call("b");
+      fail();
+    } catch (IllegalStateException expected) {
+    }
+  }
+
+  public void testFailedPostFailsTheCallsOfTheBatch() {
+    RuntimeException dataCloneError = new RuntimeException("DataCloneError");
+    clientPort.failure = dataCloneError;
+    CompletableFuture<Object> first = client.call("a");
+    CompletableFuture<Object> second = client.call("b");
+    first.exceptionally(e -> null);
+    second.exceptionally(e -> null);
+    List<CompletableFuture<Object>> third = new ArrayList<>();
+    finishAfter(10, () -> {
+      assertSame(dataCloneError, causeOf(first));
+      assertSame(dataCloneError, causeOf(second));
+      assertEquals(0, client.getPendingCount());
+      assertEquals(1, uncaught.size());
+      assertSame(dataCloneError, uncaught.get(0));
+      // the channel still works once the port does
+      server.setHandler(payload -> CompletableFuture.completedFuture("re: " + payload));
+      third.add(client.call("c"));
+    }).then(10, () -> assertEquals("re: c", third.get(0).join()));
+  }
+
+  public void testFailedResponseIsAnsweredWithFailure() {
+    RuntimeException dataCloneError = new RuntimeException("DataCloneError");
+    server.setHandler(payload -> {
+      serverPort.failure = dataCloneError;
+      return CompletableFuture.completedFuture("unclonable");
+    });
+    CompletableFuture<Object> call = client.call("a");
+    call.exceptionally(e -> null);
+    finishAfter(10, () -> {
+      assertTrue(causeOf(call).getMessage().contains("could not be posted"));
+      assertEquals(Arrays.asList(dataCloneError), uncaught);
+    });
+  }
+}
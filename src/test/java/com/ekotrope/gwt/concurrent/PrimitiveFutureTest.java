@@ -0,0 +1,199 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.ekotrope.gwt.concurrent;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+public class PrimitiveFutureTest extends AsyncTestCase {
+
+  public void testDependentsRunAsynchronously() {
+    IntCompletableFuture future = new IntCompletableFuture();
+    List<Integer> seen = new ArrayList<>();
+    future.thenAccept(seen::add);
+    future.complete(1);
+    assertTrue(seen.isEmpty());
+    finishAfter(0, () -> assertEquals(1, (int) seen.get(0)));
+  }
+
+  public void testThrowingDependentDoesNotAffectOthers() {
+    LongCompletableFuture future = new LongCompletableFuture();
+    RejectedExecutionException rejected = new RejectedExecutionException();
+    future.thenApplyAsLongAsync(value -> value, command -> {
+      throw rejected;
+    });
+    LongCompletableFuture second = future.thenApplyAsLong(value -> value + 1);
+    future.complete(1L);
+    finishAfter(0, () -> {
+      assertEquals(2L, second.join());
+      assertTrue(uncaught.contains(rejected));
+    });
+  }
+
+  public void testThrowingActionFailsTheStage() {
+    IntCompletableFuture future = IntCompletableFuture.completedFuture(1);
+    IntCompletableFuture failed = future.thenApplyAsInt(value -> {
+      throw new IllegalStateException();
+    });
+    CompletableFuture<String> handled =
+        failed.handle((value, failure) -> failure.getCause().getClass().getName());
+    finishAfter(0, () -> {
+      assertEquals(IllegalStateException.class.getName(), handled.join());
+      assertTrue(uncaught.isEmpty());
+    });
+  }
+
+  public void testUnobservedFailureIsReported() {
+    DoubleCompletableFuture future = new DoubleCompletableFuture();
+    IllegalStateException failure = new IllegalStateException();
+    future.completeExceptionally(failure);
+    finishAfter(10, () -> assertEquals(1, uncaught.size()));
+  }
+
+  public void testObservedFailureIsNotReported() {
+    IntCompletableFuture joined = new IntCompletableFuture();
+    joined.completeExceptionally(new IllegalStateException());
+    try {
+      joined.join();
+      fail();
+    } catch (CompletionException e) {
+      assertTrue(e.getCause() instanceof IllegalStateException);
+    }
+    IntCompletableFuture cancelled = new IntCompletableFuture();
+    cancelled.cancel(false);
+    finishAfter(10, () -> assertTrue(uncaught.isEmpty()));
+  }
+
+  public void testQueriesDoNotObserve() {
+    IntCompletableFuture future = new IntCompletableFuture();
+    future.completeExceptionally(new IllegalStateException());
+    assertTrue(future.isDone());
+    assertTrue(future.isCompletedExceptionally());
+    assertFalse(future.isCancelled());
+    finishAfter(10, () -> assertEquals(1, uncaught.size()));
+  }
+
+  public void testGet() throws Exception {
+    IntCompletableFuture future = new IntCompletableFuture();
+    try {
+      future.get();
+      fail();
+    } catch (InterruptedException expected) {
+    }
+    future.completeExceptionally(new IllegalStateException());
+    try {
+      future.get();
+      fail();
+    } catch (ExecutionException e) {
+      assertTrue(e.getCause() instanceof IllegalStateException);
+    }
+    assertEquals(3, IntCompletableFuture.completedFuture(3).get());
+
+    IntCompletableFuture cancelled = new IntCompletableFuture();
+    cancelled.cancel(false);
+    try {
+      cancelled.get();
+      fail();
+    } catch (CancellationException expected) {
+    }
+  }
+
+  public void testThenCombine() {
+    IntCompletableFuture a = new IntCompletableFuture();
+    IntCompletableFuture b = new IntCompletableFuture();
+    IntCompletableFuture sum = a.thenCombine(b, Integer::sum);
+    a.complete(1);
+    finishAfter(0, () -> {
+      assertFalse(sum.isDone());
+      b.complete(2);
+    }).then(0, () -> assertEquals(3, sum.join()));
+  }
+
+  public void testThenCombineConsumesBothFailures() {
+    IntCompletableFuture a = new IntCompletableFuture();
+    IntCompletableFuture b = new IntCompletableFuture();
+    IntCompletableFuture sum = a.thenCombine(b, Integer::sum);
+    sum.exceptionally(failure -> -1);
+    a.completeExceptionally(new IllegalStateException());
+    b.completeExceptionally(new IllegalArgumentException());
+    finishAfter(10, () -> {
+      assertTrue(sum.isCompletedExceptionally());
+      assertTrue(uncaught.isEmpty());
+    });
+  }
+
+  public void testThenCompose() {
+    DoubleCompletableFuture future = DoubleCompletableFuture.completedFuture(2);
+    CompletableFuture<String> composed =
+        future.thenCompose(value -> CompletableFuture.completedFuture("x" + value));
+    CompletableFuture<String> failed = future.thenCompose(value -> {
+      CompletableFuture<String> inner = new CompletableFuture<>();
+      inner.completeExceptionally(new IllegalStateException());
+      return inner;
+    });
+    finishAfter(0, () -> {
+      assertEquals("x2.0", composed.join());
+      try {
+        failed.join();
+        fail();
+      } catch (CompletionException e) {
+        assertTrue(e.getCause() instanceof IllegalStateException);
+      }
+    });
+  }
+
+  public void testWhenCompleteKeepsResult() {
+    IntCompletableFuture future = new IntCompletableFuture();
+    List<Integer> seen = new ArrayList<>();
+    IntCompletableFuture same = future.whenComplete((value, failure) -> seen.add(value));
+    future.complete(5);
+    finishAfter(0, () -> {
+      assertEquals(5, same.join());
+      assertEquals(5, (int) seen.get(0));
+    });
+  }
+
+  public void testOrTimeout() {
+    IntCompletableFuture future = new IntCompletableFuture().orTimeout(10, TimeUnit.MILLISECONDS);
+    IntCompletableFuture completed = new IntCompletableFuture().orTimeout(10, TimeUnit.MILLISECONDS);
+    completed.complete(1);
+    finishAfter(20, () -> {
+      try {
+        future.get();
+        fail();
+      } catch (ExecutionException e) {
+        assertTrue(e.getCause() instanceof TimeoutException);
+      } catch (InterruptedException e) {
+        fail("not timed out");
+      }
+      assertEquals(1, completed.join());
+    });
+  }
+
+  public void testOfAndBoxed() {
+    CompletableFuture<Integer> source = new CompletableFuture<>();
+    LongCompletableFuture unboxed = LongCompletableFuture.of(source);
+    CompletableFuture<Long> boxed = unboxed.boxed();
+    assertSame(boxed, unboxed.boxed());
+    source.complete(7);
+    finishAfter(0, () -> assertEquals(Long.valueOf(7), boxed.join()));
+  }
+}
@@ -0,0 +1,105 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.ekotrope.gwt.concurrent;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+
+public class RateLimitedExecutorTest extends AsyncTestCase {
+
+  private final List<String> released = new ArrayList<>();
+  private final Executor direct = Runnable::run;
+
+  private Runnable task(String name) {
+    return () -> released.add(name);
+  }
+
+  public void testBurstIsReleasedAtOnce() {
+    RateLimitedExecutor executor = new RateLimitedExecutor(direct, 10, 2);
+    executor.execute(task("a"));
+    executor.execute(task("b"));
+    executor.execute(task("c"));
+    assertEquals(Arrays.asList("a", "b"), released);
+    assertEquals(1, executor.getQueueLength());
+    finishAfter(150, () -> {
+      assertEquals(Arrays.asList("a", "b", "c"), released);
+      assertEquals(0, executor.getQueueLength());
+      assertEquals(3, executor.getReleasedCount());
+      assertTrue(executor.getMaxWaitMillis() > 0);
+    });
+  }
+
+  public void testQueuedTasksAreReleasedAtTheRate() {
+    RateLimitedExecutor executor = new RateLimitedExecutor(direct, 20, 1);
+    for (String name : Arrays.asList("a", "b", "c", "d")) {
+      executor.execute(task(name));
+    }
+    assertEquals(Arrays.asList("a"), released);
+    finishAfter(75, () -> {
+      // tokens are due at 50ms, 100ms and 150ms
+      assertEquals(Arrays.asList("a", "b"), released);
+      assertEquals(2, executor.getQueueLength());
+      assertTrue(executor.getOldestWaitMillis() > 0);
+    }).then(100, () -> {
+      assertEquals(Arrays.asList("a", "b", "c", "d"), released);
+      assertTrue(executor.getAverageWaitMillis() > 0);
+    });
+  }
+
+  public void testTasksDoNotOvertakeTheQueue() {
+    RateLimitedExecutor executor = new RateLimitedExecutor(direct, 20, 1);
+    executor.execute(task("a"));
+    executor.execute(task("b"));
+    finishAfter(75, () -> {
+      executor.execute(task("c"));
+      assertEquals(Arrays.asList("a", "b"), released);
+      assertEquals(1, executor.getQueueLength());
+    }).then(50, () -> assertEquals(Arrays.asList("a", "b", "c"), released));
+  }
+
+  public void testFullQueueRejects() {
+    RateLimitedExecutor executor = new RateLimitedExecutor(direct, 10, 1).maxQueueLength(1);
+    executor.execute(task("a"));
+    executor.execute(task("b"));
+    try {
+      executor.execute(task("c"));
+      fail();
+    } catch (RejectedExecutionException expected) {
+    }
+    assertEquals(1, executor.getRejectedCount());
+    assertEquals(1, executor.getQueueLength());
+    finishAfter(150, () -> assertEquals(Arrays.asList("a", "b"), released));
+  }
+
+  public void testRejectionOfQueuedTaskIsReported() {
+    RejectedExecutionException rejection = new RejectedExecutionException();
+    List<Runnable> accepted = new ArrayList<>();
+    RateLimitedExecutor executor = new RateLimitedExecutor(command -> {
+      if (!accepted.isEmpty()) {
+        throw rejection;
+      }
+      accepted.add(command);
+    }, 20, 1);
+    executor.execute(task("a"));
+    executor.execute(task("b"));
+    finishAfter(100, () -> {
+      assertEquals(1, accepted.size());
+      assertEquals(Arrays.asList(rejection), uncaught);
+      assertEquals(0, executor.getQueueLength());
+    });
+  }
+}
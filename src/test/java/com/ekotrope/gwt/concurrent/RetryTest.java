@@ -0,0 +1,134 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.ekotrope.gwt.concurrent;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+public class RetryTest extends AsyncTestCase {
+
+  private final List<CompletableFuture<String>> attempts = new ArrayList<>();
+
+  private Retry.Policy policy() {
+    return new Retry.Policy().baseDelay(100, TimeUnit.MILLISECONDS).jitter(0);
+  }
+
+  private CompletableFuture<String> attempt() {
+    CompletableFuture<String> attempt = new CompletableFuture<>();
+    attempts.add(attempt);
+    return attempt;
+  }
+
+  private static CompletableFuture<String> failed(Throwable failure) {
+    CompletableFuture<String> future = new CompletableFuture<>();
+    future.completeExceptionally(failure);
+    return future;
+  }
+
+  private static Throwable causeOf(CompletableFuture<?> future) {
+    try {
+      future.join();
+    } catch (CompletionException e) {
+      return e.getCause();
+    }
+    throw new AssertionError("not failed");
+  }
+
+  public void testSucceedsAfterFailures() {
+    int[] calls = {0};
+    CompletableFuture<String> result = Retry.withBackoff(() -> ++calls[0] < 3
+        ? failed(new IllegalStateException())
+        : CompletableFuture.completedFuture("done"), policy());
+    finishAfter(1000, () -> {
+      assertEquals("done", result.join());
+      assertEquals(3, calls[0]);
+      assertTrue(uncaught.isEmpty());
+    });
+  }
+
+  public void testBacksOffExponentially() {
+    CompletableFuture<String> result = Retry.withBackoff(this::attempt, policy().maxAttempts(4));
+    attempts.get(0).completeExceptionally(new IllegalStateException());
+    finishAfter(50, () -> {
+      assertEquals(1, attempts.size());
+    }).then(100, () -> {
+      assertEquals(2, attempts.size());
+      attempts.get(1).completeExceptionally(new IllegalStateException());
+    }).then(150, () -> {
+      // second delay is 200ms
+      assertEquals(2, attempts.size());
+    }).then(100, () -> {
+      assertEquals(3, attempts.size());
+      assertFalse(result.isDone());
+    });
+  }
+
+  public void testGivesUpWithLastFailure() {
+    int[] calls = {0};
+    IllegalStateException last = new IllegalStateException("last");
+    CompletableFuture<String> result = Retry.withBackoff(
+        () -> failed(++calls[0] == 2 ? last : new IllegalStateException()),
+        policy().maxAttempts(2));
+    finishAfter(1000, () -> {
+      assertSame(last, causeOf(result));
+      assertEquals(2, calls[0]);
+    });
+  }
+
+  public void testNonRetryableFailureFailsAtOnce() {
+    int[] calls = {0};
+    CompletableFuture<String> result = Retry.withBackoff(() -> {
+      calls[0]++;
+      return failed(new IllegalArgumentException());
+    }, policy().retryIf(t -> t instanceof IllegalStateException));
+    finishAfter(1000, () -> {
+      assertTrue(causeOf(result) instanceof IllegalArgumentException);
+      assertEquals(1, calls[0]);
+    });
+  }
+
+  public void testThrowingAttemptIsRetried() {
+    int[] calls = {0};
+    CompletableFuture<String> result = Retry.withBackoff(() -> {
+      if (++calls[0] == 1) {
+        throw new IllegalStateException();
+      }
+      return CompletableFuture.completedFuture("done");
+    }, policy());
+    finishAfter(1000, () -> assertEquals("done", result.join()));
+  }
+
+  public void testDeadlineCancelsAttemptInFlight() {
+    CompletableFuture<String> result =
+        Retry.withBackoff(this::attempt, policy().deadline(150, TimeUnit.MILLISECONDS));
+    attempts.get(0).completeExceptionally(new IllegalStateException());
+    finishAfter(1000, () -> {
+      assertTrue(causeOf(result) instanceof TimeoutException);
+      assertEquals(2, attempts.size());
+      assertTrue(attempts.get(1).isCancelled());
+    });
+  }
+
+  public void testCancelStopsRetrying() {
+    CompletableFuture<String> result = Retry.withBackoff(this::attempt, policy());
+    attempts.get(0).completeExceptionally(new IllegalStateException());
+    finishAfter(50, () -> {
+      result.cancel(false);
+    }).then(1000, () -> assertEquals(1, attempts.size()));
+  }
+}
@@ -0,0 +1,132 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.ekotrope.gwt.concurrent;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+
+public class SerialExecutorTest extends AsyncTestCase {
+
+  private final List<Runnable> held = new ArrayList<>();
+  private final Executor holding = held::add;
+
+  private void release() {
+    List<Runnable> toRun = new ArrayList<>(held);
+    held.clear();
+    for (Runnable command : toRun) {
+      command.run();
+    }
+  }
+
+  public void testTasksRunInOrderAsOneBatch() {
+    SerialExecutor executor = new SerialExecutor(holding);
+    List<String> ran = new ArrayList<>();
+    executor.execute(() -> ran.add("a"));
+    executor.execute(() -> {
+      ran.add("b");
+      executor.execute(() -> ran.add("d"));
+    });
+    executor.execute(() -> ran.add("c"));
+    assertEquals(1, held.size());
+    assertEquals(3, executor.getQueueLength());
+    release();
+    assertEquals(Arrays.asList("a", "b", "c", "d"), ran);
+    assertEquals(0, executor.getQueueLength());
+    executor.execute(() -> ran.add("e"));
+    assertEquals(1, held.size());
+  }
+
+  public void testFailingTaskDoesNotStopTheOthers() {
+    SerialExecutor executor = new SerialExecutor(holding);
+    IllegalStateException failure = new IllegalStateException();
+    List<String> ran = new ArrayList<>();
+    executor.execute(() -> {
+      throw failure;
+    });
+    executor.execute(() -> ran.add("b"));
+    release();
+    assertEquals(Arrays.asList("b"), ran);
+    assertEquals(Arrays.asList(failure), uncaught);
+  }
+
+  public void testRejectionIsPassedOn() {
+    SerialExecutor executor = new SerialExecutor(command -> {
+      throw new RejectedExecutionException();
+    });
+    try {
+      executor.execute(() -> { });
+      fail();
+    } catch (RejectedExecutionException expected) {
+    }
+    assertEquals(0, executor.getQueueLength());
+  }
+
+  public void testAsyncStagesRunInSubmissionOrder() {
+    SerialExecutor executor = new SerialExecutor();
+    List<Integer> ran = new ArrayList<>();
+    List<CompletableFuture<Void>> stages = new ArrayList<>();
+    for (int i = 0; i < 5; i++) {
+      int index = i;
+      stages.add(CompletableFuture.runAsync(() -> ran.add(index), executor));
+    }
+    finishAfter(10, () -> {
+      assertEquals(Arrays.asList(0, 1, 2, 3, 4), ran);
+      for (CompletableFuture<Void> stage : stages) {
+        assertTrue(stage.isDone());
+      }
+    });
+  }
+
+  public void testKeysRunAsSeparateBatches() {
+    KeyedSerialExecutor<String> executor = new KeyedSerialExecutor<>(holding);
+    List<String> ran = new ArrayList<>();
+    executor.execute("x", () -> ran.add("x1"));
+    executor.execute("y", () -> ran.add("y1"));
+    executor.forKey("x").execute(() -> ran.add("x2"));
+    assertEquals(2, held.size());
+    assertEquals(2, executor.getQueueLength("x"));
+    assertEquals(1, executor.getQueueLength("y"));
+    assertEquals(2, executor.getActiveKeyCount());
+    release();
+    assertEquals(Arrays.asList("x1", "x2", "y1"), ran);
+    assertEquals(0, executor.getActiveKeyCount());
+  }
+
+  public void testNullKeyIsAKeyLikeAnyOther() {
+    KeyedSerialExecutor<String> executor = new KeyedSerialExecutor<>(holding);
+    List<String> ran = new ArrayList<>();
+    executor.execute(() -> ran.add("a"));
+    executor.execute(null, () -> ran.add("b"));
+    assertEquals(1, held.size());
+    assertEquals(2, executor.getQueueLength(null));
+    release();
+    assertEquals(Arrays.asList("a", "b"), ran);
+  }
+
+  public void testKeyedRejectionDropsTheKey() {
+    KeyedSerialExecutor<String> executor = new KeyedSerialExecutor<>(command -> {
+      throw new RejectedExecutionException();
+    });
+    try {
+      executor.execute("x", () -> { });
+      fail();
+    } catch (RejectedExecutionException expected) {
+    }
+    assertEquals(0, executor.getActiveKeyCount());
+  }
+}
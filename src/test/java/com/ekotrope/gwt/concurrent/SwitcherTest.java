@@ -0,0 +1,92 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.ekotrope.gwt.concurrent;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+public class SwitcherTest extends AsyncTestCase {
+
+  private final List<CompletableFuture<String>> requests = new ArrayList<>();
+
+  private CompletableFuture<String> request() {
+    CompletableFuture<String> request = new CompletableFuture<>();
+    requests.add(request);
+    return request;
+  }
+
+  public void testLatestWins() {
+    Switcher<String> switcher = new Switcher<>();
+    CompletableFuture<String> first = switcher.submit(this::request);
+    List<String> ranOnStale = new ArrayList<>();
+    first.thenAccept(ranOnStale::add);
+    CompletableFuture<String> second = switcher.submit(this::request);
+    assertTrue(first.isCancelled());
+    assertTrue(requests.get(0).isCancelled());
+    requests.get(1).complete("second");
+    finishAfter(10, () -> {
+      assertEquals("second", second.join());
+      assertTrue(ranOnStale.isEmpty());
+      assertTrue(uncaught.isEmpty());
+    });
+  }
+
+  public void testFailureIsPassedOn() {
+    Switcher<String> switcher = new Switcher<>();
+    CompletableFuture<String> submitted = switcher.submit(this::request);
+    CompletableFuture<String> recovered = submitted.exceptionally(e -> "recovered");
+    requests.get(0).completeExceptionally(new IllegalStateException());
+    finishAfter(10, () -> {
+      assertTrue(submitted.isCompletedExceptionally());
+      assertEquals("recovered", recovered.join());
+    });
+  }
+
+  public void testThrowingRequestFailsSubmission() {
+    Switcher<String> switcher = new Switcher<>();
+    CompletableFuture<String> submitted = switcher.submit(() -> {
+      throw new IllegalStateException();
+    });
+    assertTrue(submitted.isCompletedExceptionally());
+    submitted.exceptionally(e -> null);
+  }
+
+  public void testDebounceMakesOnlyTheLastRequest() {
+    Switcher<String> switcher = new Switcher<>(100, TimeUnit.MILLISECONDS);
+    CompletableFuture<String> first = switcher.submit(this::request);
+    List<CompletableFuture<String>> second = new ArrayList<>();
+    finishAfter(50, () -> {
+      second.add(switcher.submit(this::request));
+      assertTrue(first.isCancelled());
+    }).then(50, () -> {
+      // 100ms after the first submission, but only 50ms after the second
+      assertTrue(requests.isEmpty());
+    }).then(60, () -> {
+      assertEquals(1, requests.size());
+      requests.get(0).complete("second");
+    }).then(10, () -> assertEquals("second", second.get(0).join()));
+  }
+
+  public void testCancel() {
+    Switcher<String> switcher = new Switcher<>();
+    CompletableFuture<String> submitted = switcher.submit(this::request);
+    switcher.cancel();
+    assertTrue(submitted.isCancelled());
+    assertTrue(requests.get(0).isCancelled());
+    CompletableFuture<String> next = switcher.submit(this::request);
+    assertFalse(next.isDone());
+  }
+}
@@ -0,0 +1,102 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.ekotrope.gwt.concurrent;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+public class TaskMonitorTest extends AsyncTestCase {
+
+  private final List<String> slowTasks = new ArrayList<>();
+
+  private final TaskMonitor monitor = new TaskMonitor(new TaskMonitor.Listener() {
+    @Override
+    public void onSlowTask(String label, double runMillis, double waitMillis) {
+      slowTasks.add(label);
+    }
+
+    @Override
+    public void onLag(TaskMonitor.LagHistogram histogram) { }
+  }).threshold(0, TimeUnit.MILLISECONDS);
+
+  @Override
+  protected void gwtTearDown() throws Exception {
+    TaskMonitor.uninstall();
+    super.gwtTearDown();
+  }
+
+  public void testSyncStagesAreLabelledByTheirFunction() {
+    monitor.install();
+    Function<String, String> first = s -> s + "!";
+    Consumer<String> second = s -> { };
+    CompletableFuture<String> future = new CompletableFuture<>();
+    CompletableFuture<Void> done = future.thenApply(first).thenAccept(second);
+    future.complete("a");
+    finishAfter(10, () -> {
+      assertTrue(done.isDone());
+      // the fused chain runs as one task, labelled by its first stage
+      assertEquals(1, slowTasks.size());
+      assertEquals(first.getClass().getName(), slowTasks.get(0));
+    });
+  }
+
+  public void testEachDependentIsTimed() {
+    monitor.install();
+    Function<String, String> first = s -> s + "!";
+    Function<String, String> second = s -> s + "?";
+    CompletableFuture<String> future = new CompletableFuture<>();
+    future.thenApply(first);
+    future.thenApply(second);
+    future.complete("a");
+    finishAfter(10, () -> {
+      assertEquals(2, slowTasks.size());
+      assertEquals(first.getClass().getName(), slowTasks.get(0));
+      assertEquals(second.getClass().getName(), slowTasks.get(1));
+    });
+  }
+
+  public void testAsyncStagesAreLabelledByTheirFunction() {
+    monitor.install();
+    Function<String, String> fn = s -> s + "!";
+    CompletableFuture<String> future = new CompletableFuture<>();
+    CompletableFuture<String> done = future.thenApplyAsync(fn);
+    future.complete("a");
+    finishAfter(10, () -> {
+      assertEquals("a!", done.join());
+      assertTrue(slowTasks.contains(fn.getClass().getName()));
+    });
+  }
+
+  public void testMonitoredExecutorLabelsStagesByTheirFunction() {
+    Executor executor = monitor.monitor(Runnable::run);
+    Runnable action = () -> { };
+    CompletableFuture.completedFuture("a").thenRunAsync(action, executor);
+    assertEquals(1, slowTasks.size());
+    assertEquals(action.getClass().getName(), slowTasks.get(0));
+  }
+
+  public void testUninstalledMonitorTimesNothing() {
+    monitor.install();
+    TaskMonitor.uninstall();
+    CompletableFuture<String> future = new CompletableFuture<>();
+    future.thenApply(s -> s + "!");
+    future.complete("a");
+    finishAfter(10, () -> assertTrue(slowTasks.isEmpty()));
+  }
+}
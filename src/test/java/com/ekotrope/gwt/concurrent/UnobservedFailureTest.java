@@ -0,0 +1,90 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.ekotrope.gwt.concurrent;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+
+/**
+ * Reporting of failures nobody consumed.
+ */
+public class UnobservedFailureTest extends AsyncTestCase {
+
+  public void testUnobservedFailureIsReported() {
+    IllegalStateException failure = new IllegalStateException();
+    new CompletableFuture<>().completeExceptionally(failure);
+    finishAfter(10, () -> {
+      assertEquals(1, uncaught.size());
+      assertSame(failure, uncaught.get(0));
+    });
+  }
+
+  public void testFailuresOfOneTurnAreReportedTogether() {
+    new CompletableFuture<>().completeExceptionally(new IllegalStateException());
+    new CompletableFuture<>().completeExceptionally(new IllegalArgumentException());
+    finishAfter(10, () -> {
+      assertEquals(1, uncaught.size());
+      assertEquals(1, uncaught.get(0).getSuppressed().length);
+    });
+  }
+
+  public void testQueriesDoNotObserve() {
+    CompletableFuture<Object> future = new CompletableFuture<>();
+    future.completeExceptionally(new IllegalStateException());
+    assertTrue(future.isDone());
+    assertTrue(future.isCompletedExceptionally());
+    assertFalse(future.isCancelled());
+    assertEquals(0, future.getNumberOfDependents());
+    finishAfter(10, () -> assertEquals(1, uncaught.size()));
+  }
+
+  public void testReadingObserves() {
+    CompletableFuture<Object> joined = new CompletableFuture<>();
+    joined.completeExceptionally(new IllegalStateException());
+    try {
+      joined.join();
+      fail();
+    } catch (CompletionException expected) {
+    }
+    CompletableFuture<Object> got = new CompletableFuture<>();
+    got.completeExceptionally(new IllegalStateException());
+    try {
+      got.get();
+      fail();
+    } catch (ExecutionException expected) {
+    } catch (InterruptedException e) {
+      fail();
+    }
+    finishAfter(10, () -> assertTrue(uncaught.isEmpty()));
+  }
+
+  public void testDependentObserves() {
+    CompletableFuture<Object> future = new CompletableFuture<>();
+    future.completeExceptionally(new IllegalStateException());
+    CompletableFuture<Object> recovered = future.exceptionally(e -> "recovered");
+    finishAfter(10, () -> {
+      assertEquals("recovered", recovered.join());
+      assertTrue(uncaught.isEmpty());
+    });
+  }
+
+  public void testCancellationIsNotReported() {
+    new CompletableFuture<>().cancel(false);
+    CompletableFuture<Object> future = new CompletableFuture<>();
+    future.thenApply(value -> value);
+    future.cancel(false);
+    finishAfter(10, () -> assertTrue(uncaught.isEmpty()));
+  }
+}